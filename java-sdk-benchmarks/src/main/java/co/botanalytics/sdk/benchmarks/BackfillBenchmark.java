@@ -0,0 +1,95 @@
+package co.botanalytics.sdk.benchmarks;
+
+import co.botanalytics.sdk.BackfillOptions;
+import co.botanalytics.sdk.BackfillProgress;
+import co.botanalytics.sdk.BotanalyticsConfiguration;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Events per second of {@link co.botanalytics.sdk.rbm.BotanalyticsRBMClient#backfill(java.io.InputStream, BackfillOptions)}
+ * replaying an in-memory export of agent messages from 500 conversations to an in-process {@link StubApiServer}, by
+ * number of lanes.
+ * <pre>
+ * mvn -pl java-sdk-benchmarks -am package
+ * java -jar java-sdk-benchmarks/target/benchmarks.jar BackfillBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BackfillBenchmark {
+
+    private static final int EVENTS = 10000;
+    private static final int CONVERSATIONS = 500;
+
+    @Param({"1", "4", "16"})
+    private int parallelism;
+
+    private StubApiServer server;
+    private BenchmarkRBMClient client;
+    private BackfillOptions options;
+    private byte[] export;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        server = new StubApiServer();
+
+        BotanalyticsConfiguration configuration = BotanalyticsConfiguration.builder()
+                .scheme("http")
+                .build();
+
+        client = new BenchmarkRBMClient(server.getDomain(), configuration);
+        options = BackfillOptions.builder()
+                .parallelism(parallelism)
+                .build();
+
+        String message = JacksonFactory.getDefaultInstance().toString(Fixtures.agentMessage());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        for (int i = 0; i < EVENTS; i++) {
+
+            String line = message.replace("+15551234567", String.format("+1555%07d", i % CONVERSATIONS)) + "\n";
+
+            out.write(line.getBytes(StandardCharsets.UTF_8));
+        }
+
+        export = out.toByteArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public BackfillProgress backfill() throws Throwable {
+
+        return client.backfill(new ByteArrayInputStream(export), options);
+    }
+}
@@ -0,0 +1,40 @@
+package co.botanalytics.sdk.benchmarks;
+
+import co.botanalytics.sdk.BotanalyticsConfiguration;
+import co.botanalytics.sdk.exceptions.BotanalyticsAuthorizationException;
+import co.botanalytics.sdk.exceptions.BotanalyticsConfigurationException;
+import co.botanalytics.sdk.exceptions.BotanalyticsJSONException;
+import co.botanalytics.sdk.exceptions.BotanalyticsRequestException;
+import co.botanalytics.sdk.rbm.BotanalyticsRBMClient;
+
+import java.net.URI;
+
+/**
+ * RBM client that also exposes the raw send path, so benchmarks can measure it apart from any model serialization.
+ */
+class BenchmarkRBMClient extends BotanalyticsRBMClient {
+
+    static final String TOKEN = "benchmark-token";
+
+    private final URI messagesUri = getBaseUri().resolve("messages/rbm/");
+
+    BenchmarkRBMClient(BotanalyticsConfiguration configuration) throws BotanalyticsConfigurationException {
+
+        super(TOKEN, configuration);
+    }
+
+    BenchmarkRBMClient(String domain, BotanalyticsConfiguration configuration) throws BotanalyticsConfigurationException {
+
+        super(TOKEN, domain, 1, configuration);
+    }
+
+    void send(String payload) throws BotanalyticsRequestException, BotanalyticsAuthorizationException, BotanalyticsJSONException {
+
+        sendRequest(messagesUri, payload);
+    }
+
+    void send(byte[] payload) throws BotanalyticsRequestException, BotanalyticsAuthorizationException, BotanalyticsJSONException {
+
+        sendRequest(messagesUri, payload);
+    }
+}
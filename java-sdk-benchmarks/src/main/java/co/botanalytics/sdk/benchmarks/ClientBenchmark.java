@@ -0,0 +1,120 @@
+package co.botanalytics.sdk.benchmarks;
+
+import co.botanalytics.sdk.BotanalyticsConfiguration;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.services.rcsbusinessmessaging.v1.model.AgentEvent;
+import com.google.api.services.rcsbusinessmessaging.v1.model.AgentMessage;
+import com.google.api.services.rcsbusinessmessaging.v1.model.Capabilities;
+import com.google.api.services.rcsbusinessmessaging.v1.model.Empty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end cost of every blocking logging entry point of {@link co.botanalytics.sdk.rbm.BotanalyticsRBMClient},
+ * sent over plain HTTP to an in-process {@link StubApiServer}. Throughput mode reports operations per microsecond and
+ * sample-time mode reports latency percentiles (p50 to p99.99).
+ * <p>
+ * Add the GC profiler to report allocation per operation ({@code gc.alloc.rate.norm}):
+ * <pre>
+ * mvn -pl java-sdk-benchmarks -am package
+ * java -jar java-sdk-benchmarks/target/benchmarks.jar ClientBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClientBenchmark {
+
+    private StubApiServer server;
+    private BenchmarkRBMClient client;
+
+    private byte[] rawPayload;
+    private AgentMessage agentMessage;
+    private AgentEvent agentEvent;
+    private Empty empty;
+    private Capabilities capabilities;
+    private byte[] pubSubEnvelope;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        server = new StubApiServer();
+
+        BotanalyticsConfiguration configuration = BotanalyticsConfiguration.builder()
+                .scheme("http")
+                .build();
+
+        client = new BenchmarkRBMClient(server.getDomain(), configuration);
+
+        agentMessage = Fixtures.agentMessage();
+        agentEvent = Fixtures.agentEvent();
+        empty = new Empty();
+        capabilities = Fixtures.capabilities();
+        pubSubEnvelope = Fixtures.pubSubEnvelope();
+        rawPayload = JacksonFactory.getDefaultInstance().toByteArray(agentMessage);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public void sendRequest() throws Throwable {
+
+        client.send(rawPayload);
+    }
+
+    @Benchmark
+    public void logAgentMessage() throws Throwable {
+
+        client.logMessage(agentMessage);
+    }
+
+    @Benchmark
+    public void logAgentEvent() throws Throwable {
+
+        client.logMessage(agentEvent);
+    }
+
+    @Benchmark
+    public void logEmpty() throws Throwable {
+
+        client.logMessage(empty);
+    }
+
+    @Benchmark
+    public void logCapabilities() throws Throwable {
+
+        client.logMessage(capabilities);
+    }
+
+    @Benchmark
+    public void logImageMessage() throws Throwable {
+
+        client.logImageMessage(agentMessage, Fixtures.FILE_URL);
+    }
+
+    @Benchmark
+    public String logPubSubRequest() throws Throwable {
+
+        return client.logMessage(Fixtures.servletRequest(pubSubEnvelope));
+    }
+}
@@ -0,0 +1,88 @@
+package co.botanalytics.sdk.benchmarks;
+
+import co.botanalytics.sdk.BotanalyticsConfiguration;
+import co.botanalytics.sdk.exceptions.BotanalyticsConfigurationException;
+import co.botanalytics.sdk.rbm.BotanalyticsRBMClient;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.services.rcsbusinessmessaging.v1.model.AgentMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the former media payload path (toString(), readTree, mutate, writeValueAsString, then a String entity copy)
+ * with the single generator pass used by {@link BotanalyticsRBMClient#logImageMessage(AgentMessage, String)}.
+ * Both benchmarks send through {@link NoOpTransport}, so the difference is the serialization alone.
+ * <p>
+ * Run with the GC profiler to compare allocation per event ({@code gc.alloc.rate.norm}):
+ * <pre>
+ * mvn -pl java-sdk-benchmarks -am package
+ * java -jar java-sdk-benchmarks/target/benchmarks.jar FilePayloadBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilePayloadBenchmark {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private BenchmarkRBMClient client;
+    private AgentMessage message;
+
+    @Setup(Level.Trial)
+    public void setUp() throws BotanalyticsConfigurationException {
+
+        BotanalyticsConfiguration configuration = BotanalyticsConfiguration.builder()
+                .transport(new NoOpTransport())
+                .build();
+
+        client = new BenchmarkRBMClient(configuration);
+
+        message = Fixtures.agentMessage();
+
+        // toString() only renders JSON when the model carries a factory, as parsed models do.
+        message.setFactory(JacksonFactory.getDefaultInstance());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+
+        client.close();
+    }
+
+    @Benchmark
+    public void legacyRoundTrip() throws Throwable {
+
+        JsonNode rootNode = OBJECT_MAPPER.readTree(message.toString());
+        ObjectNode contentMessageNode = (ObjectNode) rootNode.get("contentMessage");
+
+        contentMessageNode.put("type", "image");
+        contentMessageNode.put("fileUrl", Fixtures.FILE_URL);
+
+        client.send(OBJECT_MAPPER.writeValueAsString(rootNode));
+    }
+
+    @Benchmark
+    public void streamingLogImageMessage() throws Throwable {
+
+        client.logImageMessage(message, Fixtures.FILE_URL);
+    }
+}
@@ -0,0 +1,121 @@
+package co.botanalytics.sdk.benchmarks;
+
+import com.google.api.services.rcsbusinessmessaging.v1.model.AgentContentMessage;
+import com.google.api.services.rcsbusinessmessaging.v1.model.AgentEvent;
+import com.google.api.services.rcsbusinessmessaging.v1.model.AgentMessage;
+import com.google.api.services.rcsbusinessmessaging.v1.model.Capabilities;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Representative RBM payloads shared by the benchmarks.
+ */
+final class Fixtures {
+
+    static final String FILE_URL = "https://example.com/media/3f1c0a8e-image.jpg";
+
+    private static final String PHONE = "phones/+15551234567";
+
+    private Fixtures() {
+    }
+
+    static AgentMessage agentMessage() {
+
+        return new AgentMessage()
+                .setName(PHONE + "/agentMessages/0f8fad5b-d9cb-469f-a165-70867728950e")
+                .setContentMessage(new AgentContentMessage()
+                        .setText("Here is the picture of the product you asked about, let us know what you think."));
+    }
+
+    static AgentEvent agentEvent() {
+
+        return new AgentEvent()
+                .setName(PHONE + "/agentEvents/7c9e6679-7425-40de-944b-e07fc1f90ae7")
+                .setEventType("IS_TYPING");
+    }
+
+    static Capabilities capabilities() {
+
+        return new Capabilities()
+                .setFeatures(Arrays.asList("RICHCARD_STANDALONE", "RICHCARD_CAROUSEL", "ACTION_CREATE_CALENDAR_EVENT",
+                        "ACTION_DIAL", "ACTION_OPEN_URL", "ACTION_SHARE_LOCATION", "ACTION_VIEW_LOCATION"));
+    }
+
+    /**
+     * @return Body of a Pub/Sub push request carrying a user message, as RBM delivers it to the webhook
+     */
+    static byte[] pubSubEnvelope() {
+
+        String userMessage = "{\"senderPhoneNumber\":\"+15551234567\",\"messageId\":\"MxHCgaWcRLQ2yJ7Ap3d5Qh3g\","
+                + "\"sendTime\":\"2024-03-11T09:41:05.125Z\",\"text\":\"Do you have this in a smaller size?\"}";
+
+        String data = Base64.getEncoder().encodeToString(userMessage.getBytes(StandardCharsets.UTF_8));
+
+        String envelope = "{\"message\":{\"attributes\":{\"message_type\":\"TEXT\"},\"data\":\"" + data + "\","
+                + "\"messageId\":\"2070443601311540\",\"publishTime\":\"2024-03-11T09:41:05.322Z\"},"
+                + "\"subscription\":\"projects/rbm-agent/subscriptions/rbm-agent-sub\"}";
+
+        return envelope.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return Request whose only implemented method, {@code getInputStream()}, replays the given body
+     */
+    static HttpServletRequest servletRequest(final byte[] body) {
+
+        return (HttpServletRequest) Proxy.newProxyInstance(Fixtures.class.getClassLoader(), new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) -> {
+
+            if (!"getInputStream".equals(method.getName()))
+                throw new UnsupportedOperationException(method.getName());
+
+            return new ByteArrayServletInputStream(body);
+        });
+    }
+
+    private static final class ByteArrayServletInputStream extends ServletInputStream {
+
+        private final ByteArrayInputStream in;
+
+        private ByteArrayServletInputStream(byte[] body) {
+
+            this.in = new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public int read() {
+
+            return in.read();
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+
+            return in.read(buffer, offset, length);
+        }
+
+        @Override
+        public boolean isFinished() {
+
+            return in.available() == 0;
+        }
+
+        @Override
+        public boolean isReady() {
+
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+
+            throw new UnsupportedOperationException("setReadListener");
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package co.botanalytics.sdk.benchmarks;
+
+import co.botanalytics.sdk.Transport;
+import co.botanalytics.sdk.TransportRequest;
+import co.botanalytics.sdk.TransportResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Answers every request with an empty {@code 200} response without touching the network, so benchmarks measure the
+ * client's own work.
+ */
+class NoOpTransport implements Transport {
+
+    private static final byte[] OK_BODY = "{}".getBytes(StandardCharsets.UTF_8);
+
+    @Override
+    public TransportResponse send(TransportRequest request) {
+
+        return new TransportResponse() {
+
+            @Override
+            public int getStatusCode() {
+
+                return 200;
+            }
+
+            @Override
+            public String getHeader(String name) {
+
+                return null;
+            }
+
+            @Override
+            public InputStream getBody() {
+
+                return new ByteArrayInputStream(OK_BODY);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+    }
+}
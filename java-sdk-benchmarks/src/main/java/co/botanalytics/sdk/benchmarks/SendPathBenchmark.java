@@ -0,0 +1,72 @@
+package co.botanalytics.sdk.benchmarks;
+
+import co.botanalytics.sdk.BotanalyticsConfiguration;
+import co.botanalytics.sdk.GzipCodec;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client-side cost of {@code sendRequest} for an already serialized event, from request template to response
+ * handling, sent through {@link NoOpTransport}. The {@code compressed} parameter runs the same payload through
+ * {@link GzipCodec}.
+ * <p>
+ * The interesting figure is allocation per event ({@code gc.alloc.rate.norm}), which
+ * {@code BotanalyticsClientTest#testSendRequestStaysWithinAllocationBudget} keeps within budget:
+ * <pre>
+ * mvn -pl java-sdk-benchmarks -am package
+ * java -jar java-sdk-benchmarks/target/benchmarks.jar SendPathBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SendPathBenchmark {
+
+    @Param({"false", "true"})
+    private boolean compressed;
+
+    private BenchmarkRBMClient client;
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        BotanalyticsConfiguration.Builder builder = BotanalyticsConfiguration.builder()
+                .transport(new NoOpTransport());
+
+        if (compressed)
+            builder.compression(new GzipCodec()).compressionThreshold(0);
+
+        client = new BenchmarkRBMClient(builder.build());
+        payload = JacksonFactory.getDefaultInstance().toByteArray(Fixtures.agentMessage());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+
+        client.close();
+    }
+
+    @Benchmark
+    public void sendRequest() throws Throwable {
+
+        client.send(payload);
+    }
+}
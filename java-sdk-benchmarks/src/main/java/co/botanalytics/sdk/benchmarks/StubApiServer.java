@@ -0,0 +1,67 @@
+package co.botanalytics.sdk.benchmarks;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * In-process HTTP server standing in for the Botanalytics API. Reads every request body and answers {@code 200} with an
+ * empty JSON object, so benchmarks include real sockets and connection pooling without leaving the machine.
+ */
+class StubApiServer implements AutoCloseable {
+
+    private static final byte[] OK_BODY = "{}".getBytes(StandardCharsets.UTF_8);
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    StubApiServer() throws IOException {
+
+        // Without TCP_NODELAY the small response body waits for the delayed ACK of the headers, adding ~40 ms per call.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", StubApiServer::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    String getDomain() {
+
+        return "127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+
+        byte[] buffer = new byte[8192];
+
+        try (InputStream in = exchange.getRequestBody()) {
+
+            while (in.read(buffer) != -1) {
+                // Drain the body so the connection can be reused.
+            }
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, OK_BODY.length);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+
+            out.write(OK_BODY);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package co.botanalytics.sdk.benchmarks;
+
+import co.botanalytics.sdk.BotanalyticsConfiguration;
+import co.botanalytics.sdk.JacksonWireFormat;
+import co.botanalytics.sdk.WireFormat;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.services.rcsbusinessmessaging.v1.model.AgentMessage;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the wire formats for an RBM {@code AgentMessage}: {@code encode} measures serialization plus transcoding
+ * alone, {@code logAgentMessage} the whole client path through {@link NoOpTransport}. {@code encode} also reports the
+ * {@code bodies} it encoded and their total {@code bodyBytes}, whose ratio is the body size of the format:
+ * <pre>
+ * mvn -pl java-sdk-benchmarks -am package
+ * java -jar java-sdk-benchmarks/target/benchmarks.jar WireFormatBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    private static final JsonFactory JSON_FACTORY = JacksonFactory.getDefaultInstance();
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    private WireFormat wireFormat;
+    private BenchmarkRBMClient client;
+    private AgentMessage message;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        wireFormat = "cbor".equals(format) ? JacksonWireFormat.cbor() : "smile".equals(format) ? JacksonWireFormat.smile() : null;
+
+        client = new BenchmarkRBMClient(BotanalyticsConfiguration.builder()
+                .transport(new NoOpTransport())
+                .wireFormat(wireFormat)
+                .build());
+
+        message = Fixtures.agentMessage();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+
+        client.close();
+    }
+
+    @Benchmark
+    public byte[] encode(BodySize size) throws IOException {
+
+        byte[] json = JSON_FACTORY.toByteArray(message);
+        byte[] body = wireFormat == null ? json : wireFormat.encode(json);
+
+        size.bodies++;
+        size.bodyBytes += body.length;
+
+        return body;
+    }
+
+    @Benchmark
+    public void logAgentMessage() throws Throwable {
+
+        client.logMessage(message);
+    }
+
+    /**
+     * Counts the encoded bodies and their bytes. Both are events that JMH aggregates the same way across iterations, so
+     * their ratio stays the body size.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class BodySize {
+
+        public long bodies;
+        public long bodyBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+
+            bodies = 0;
+            bodyBytes = 0;
+        }
+    }
+}
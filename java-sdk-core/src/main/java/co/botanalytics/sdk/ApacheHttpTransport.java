@@ -0,0 +1,145 @@
+package co.botanalytics.sdk;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Blocking {@link Transport} built on Apache HttpClient 4.5 with a pooled connection manager. This is the transport a
+ * {@link BotanalyticsClient} uses unless another one is configured.
+ */
+public class ApacheHttpTransport implements Transport {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ApacheHttpTransport.class);
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+
+    public ApacheHttpTransport(BotanalyticsConfiguration configuration) {
+
+        this.connectionManager = new PoolingHttpClientConnectionManager();
+
+        connectionManager.setMaxTotal(configuration.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(configuration.getMaxConnectionsPerRoute());
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout((int) configuration.getConnectTimeoutMillis())
+                .setSocketTimeout((int) configuration.getSocketTimeoutMillis())
+                .setConnectionRequestTimeout((int) configuration.getLeaseTimeoutMillis())
+                .build();
+
+        final long keepAliveMillis = configuration.getKeepAliveMillis();
+
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy((response, context) -> {
+
+                    long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+
+                    return serverKeepAlive > 0 ? Math.min(serverKeepAlive, keepAliveMillis) : keepAliveMillis;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(configuration.getIdleEvictionMillis(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @Override
+    public TransportResponse send(TransportRequest request) throws IOException {
+
+        HttpPost httpPost = new HttpPost(request.getUri());
+
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet())
+            httpPost.setHeader(header.getKey(), header.getValue());
+
+        httpPost.setEntity(new ByteArrayEntity(request.getBody()));
+
+        return new ApacheHttpResponse(httpClient.execute(httpPost));
+    }
+
+    PoolingHttpClientConnectionManager getConnectionManager() {
+
+        return connectionManager;
+    }
+
+    /**
+     * @return Connection pool statistics of the transport, or {@code null} when it does not pool connections
+     */
+    static PoolStats poolStats(Transport transport) {
+
+        return transport instanceof ApacheHttpTransport ? ((ApacheHttpTransport) transport).connectionManager.getTotalStats() : null;
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        httpClient.close();
+    }
+
+    private static final class ApacheHttpResponse implements TransportResponse {
+
+        private final CloseableHttpResponse response;
+
+        private ApacheHttpResponse(CloseableHttpResponse response) {
+
+            this.response = response;
+        }
+
+        @Override
+        public int getStatusCode() {
+
+            return response.getStatusLine().getStatusCode();
+        }
+
+        @Override
+        public String getHeader(String name) {
+
+            Header header = response.getFirstHeader(name);
+
+            return header == null ? null : header.getValue();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+
+            HttpEntity entity = response.getEntity();
+
+            return entity == null ? null : entity.getContent();
+        }
+
+        /**
+         * Consumes whatever is left of the response body so the connection goes back to the pool, then closes the
+         * response. Runs on every path, including the authorization error branches.
+         */
+        @Override
+        public void close() {
+
+            EntityUtils.consumeQuietly(response.getEntity());
+
+            try {
+
+                response.close();
+
+            } catch (IOException e) {
+
+                LOGGER.debug("Failed to close response.", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package co.botanalytics.sdk;
+
+import co.botanalytics.sdk.exceptions.BotanalyticsOverflowException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Bounded queue drained by a fixed set of daemon threads. Worker threads are started on the first submission so
+ * clients that only log synchronously never pay for them.
+ * <p>
+ * In virtual thread mode a single daemon thread drains the queue instead and runs every task on its own virtual
+ * thread, with at most one task per pooled connection in flight. Virtual threads are looked up reflectively so the
+ * dispatcher still loads on Java 8.
+ */
+class AsyncDispatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncDispatcher.class);
+    private static final AtomicInteger DISPATCHER_COUNT = new AtomicInteger();
+
+    private final BlockingQueue<Task> queue;
+    private final int threadCount;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutMillis;
+    private final ThreadFactory virtualThreadFactory;
+    private final Semaphore permits;
+    private final String threadNamePrefix = "botanalytics-dispatcher-" + DISPATCHER_COUNT.incrementAndGet() + "-";
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean started;
+    private volatile boolean closed;
+
+    AsyncDispatcher(BotanalyticsConfiguration configuration) {
+
+        this.queue = new ArrayBlockingQueue<>(configuration.getAsyncQueueCapacity());
+        this.threadCount = configuration.getAsyncThreads();
+        this.overflowPolicy = configuration.getOverflowPolicy();
+        this.blockTimeoutMillis = configuration.getBlockTimeoutMillis();
+        this.virtualThreadFactory = configuration.isVirtualThreads() ? virtualThreadFactory(threadNamePrefix + "virtual-") : null;
+        this.permits = new Semaphore(configuration.getMaxConnectionsPerRoute());
+
+        if (configuration.isVirtualThreads() && virtualThreadFactory == null)
+            LOGGER.warn("Virtual threads require Java 21, sending asynchronously logged events on {} platform threads.", threadCount);
+    }
+
+    CompletableFuture<Void> submit(Job job) {
+
+        Task task = new Task(job);
+
+        if (closed) {
+
+            task.future.completeExceptionally(new IllegalStateException("Botanalytics client is closed."));
+
+            return task.future;
+        }
+
+        ensureStarted();
+
+        pending.incrementAndGet();
+
+        switch (overflowPolicy) {
+
+            case DROP_OLDEST:
+
+                while (!queue.offer(task)) {
+
+                    Task evicted = queue.poll();
+
+                    if (evicted != null) {
+
+                        pending.decrementAndGet();
+                        evicted.reject("Dropped oldest queued event due to full dispatch queue.");
+                    }
+                }
+
+                break;
+
+            case DROP_NEWEST:
+
+                if (!queue.offer(task)) {
+
+                    pending.decrementAndGet();
+                    task.reject("Dropped event due to full dispatch queue.");
+                }
+
+                break;
+
+            case BLOCK:
+
+                try {
+
+                    if (!queue.offer(task, blockTimeoutMillis, TimeUnit.MILLISECONDS)) {
+
+                        pending.decrementAndGet();
+                        task.reject("Timed out waiting for space in dispatch queue.");
+                    }
+
+                } catch (InterruptedException e) {
+
+                    Thread.currentThread().interrupt();
+
+                    pending.decrementAndGet();
+                    task.reject("Interrupted while waiting for space in dispatch queue.");
+                }
+
+                break;
+        }
+
+        // Workers exit once closed and idle, so a task queued while the dispatcher was closing may never run.
+        if (closed && queue.remove(task)) {
+
+            pending.decrementAndGet();
+            task.future.completeExceptionally(new IllegalStateException("Botanalytics client is closed."));
+        }
+
+        return task.future;
+    }
+
+    int getQueueDepth() {
+
+        return queue.size();
+    }
+
+    /**
+     * @return {@code true} while the queue is more than half full
+     */
+    boolean isBusy() {
+
+        return queue.size() > queue.remainingCapacity();
+    }
+
+    /**
+     * Waits until every accepted task has either run or been dropped.
+     * @return {@code true} when the dispatcher became idle before the timeout elapsed
+     */
+    boolean awaitIdle(long timeoutMillis) throws InterruptedException {
+
+        long start = System.nanoTime();
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+        while (pending.get() > 0) {
+
+            if (System.nanoTime() - start >= timeoutNanos)
+                return false;
+
+            Thread.sleep(5);
+        }
+
+        return true;
+    }
+
+    /**
+     * Stops accepting new tasks and lets the worker threads exit once the queue is empty.
+     */
+    void close() {
+
+        closed = true;
+    }
+
+    /**
+     * Removes every task still queued, e.g. once a drain deadline passed. Tasks taken over by the handler complete
+     * normally, the others fail with a {@link BotanalyticsOverflowException}.
+     * @param handler Returns {@code true} when it took care of the job, e.g. by writing it to a spool
+     * @param reason Message of the exception the other tasks fail with
+     * @return Number of removed tasks
+     */
+    int abandonQueued(Predicate<Job> handler, String reason) {
+
+        List<Task> tasks = new ArrayList<>();
+
+        queue.drainTo(tasks);
+
+        for (Task task : tasks) {
+
+            try {
+
+                if (handler.test(task.job)) {
+
+                    task.future.complete(null);
+
+                } else {
+
+                    task.future.completeExceptionally(new BotanalyticsOverflowException(reason));
+                }
+
+            } finally {
+
+                pending.decrementAndGet();
+            }
+        }
+
+        return tasks.size();
+    }
+
+    private void ensureStarted() {
+
+        if (started)
+            return;
+
+        synchronized (this) {
+
+            if (started)
+                return;
+
+            int drainers = virtualThreadFactory == null ? threadCount : 1;
+
+            for (int i = 0; i < drainers; i++) {
+
+                Thread thread = new Thread(this::drain, threadNamePrefix + i);
+                thread.setDaemon(true);
+                thread.start();
+            }
+
+            started = true;
+        }
+    }
+
+    private void drain() {
+
+        while (true) {
+
+            Task task;
+
+            try {
+
+                task = queue.poll(100, TimeUnit.MILLISECONDS);
+
+            } catch (InterruptedException e) {
+
+                return;
+            }
+
+            if (task == null) {
+
+                if (closed)
+                    return;
+
+                continue;
+            }
+
+            if (virtualThreadFactory == null) {
+
+                run(task);
+
+            } else {
+
+                runOnVirtualThread(task);
+            }
+        }
+    }
+
+    /**
+     * Waits for a free permit, so no more tasks are in flight than connections may be leased, then runs the task on a
+     * new virtual thread.
+     */
+    private void runOnVirtualThread(Task task) {
+
+        permits.acquireUninterruptibly();
+
+        virtualThreadFactory.newThread(() -> {
+
+            try {
+
+                run(task);
+
+            } finally {
+
+                permits.release();
+            }
+        }).start();
+    }
+
+    private void run(Task task) {
+
+        try {
+
+            task.run();
+
+        } finally {
+
+            pending.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return Factory of virtual threads named {@code prefix0}, {@code prefix1}... or {@code null} before Java 21
+     */
+    private static ThreadFactory virtualThreadFactory(String prefix) {
+
+        try {
+
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+
+        } catch (ReflectiveOperationException | RuntimeException e) {
+
+            return null;
+        }
+    }
+
+    /**
+     * Unit of work executed on a dispatcher thread. Mirrors the checked exceptions of
+     * {@link BotanalyticsClient#sendRequest(java.net.URI, byte[])}.
+     */
+    interface Job {
+
+        void run() throws Throwable;
+    }
+
+    private static final class Task {
+
+        private final Job job;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Task(Job job) {
+
+            this.job = job;
+        }
+
+        private void run() {
+
+            try {
+
+                job.run();
+
+                future.complete(null);
+
+            } catch (Throwable t) {
+
+                future.completeExceptionally(t);
+            }
+        }
+
+        private void reject(String reason) {
+
+            LOGGER.warn(reason);
+
+            future.completeExceptionally(new BotanalyticsOverflowException(reason));
+        }
+    }
+}
@@ -0,0 +1,584 @@
+package co.botanalytics.sdk;
+
+import co.botanalytics.sdk.exceptions.BotanalyticsAuthorizationException;
+import co.botanalytics.sdk.exceptions.BotanalyticsJSONException;
+import co.botanalytics.sdk.exceptions.BotanalyticsRequestException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs one bulk import, see {@link BackfillOptions}.
+ * <p>
+ * The calling thread reads lines and hands them to lanes, one daemon thread and bounded queue each, picked by the
+ * hash of the line's conversation. Every line gets a sequence number, and completed lines are tracked in a ring so the
+ * checkpoint is the end of the longest completed prefix of the input. The reader never gets further ahead of that
+ * prefix than the ring holds, which bounds memory even while a single lane is stuck retrying.
+ */
+class Backfill {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Backfill.class);
+    private static final long YIELD_MILLIS = 10;
+    private static final Item POISON = new Item(-1, null);
+
+    private final BotanalyticsClient client;
+    private final URI uri;
+    private final BackfillOptions options;
+    private final Function<byte[], String> conversationOf;
+    private final Lane[] lanes;
+    private final long emissionNanos;
+    private final AtomicLong nextSendAt = new AtomicLong(System.nanoTime());
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition advanced = lock.newCondition();
+    private final boolean[] completed;
+    private final long[] ends;
+    private long watermark;
+    private long watermarkOffset;
+    private long startOffset;
+    private long startLines;
+    private long linesRead;
+    private long startNanos;
+
+    Backfill(BotanalyticsClient client, URI uri, BackfillOptions options, Function<byte[], String> conversationOf) {
+
+        this.client = client;
+        this.uri = uri;
+        this.options = options;
+        this.conversationOf = conversationOf;
+        this.lanes = new Lane[options.getParallelism()];
+        this.emissionNanos = options.getEventsPerSecond() == 0 ? 0
+                : Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / options.getEventsPerSecond()));
+
+        int window = Math.max(1024, 4 * lanes.length * (options.getLaneCapacity() + 1));
+
+        this.completed = new boolean[window];
+        this.ends = new long[window];
+    }
+
+    BackfillProgress run(InputStream input) throws IOException, InterruptedException, BotanalyticsRequestException, BotanalyticsAuthorizationException {
+
+        readCheckpoint();
+        skipFully(input, startOffset);
+
+        watermarkOffset = startOffset;
+        startNanos = System.nanoTime();
+
+        for (int i = 0; i < lanes.length; i++) {
+
+            lanes[i] = new Lane(options.getLaneCapacity());
+            lanes[i].thread = new Thread(lanes[i], "botanalytics-backfill-" + i);
+            lanes[i].thread.setDaemon(true);
+            lanes[i].thread.start();
+        }
+
+        try {
+
+            read(new LineReader(input, startOffset));
+
+            for (Lane lane : lanes)
+                lane.queue.put(POISON);
+
+            for (Lane lane : lanes)
+                lane.thread.join();
+
+        } catch (IOException | InterruptedException | RuntimeException e) {
+
+            abort();
+
+            try {
+
+                report(true);
+
+            } catch (IOException checkpointException) {
+
+                e.addSuppressed(checkpointException);
+            }
+
+            throw e;
+        }
+
+        BackfillProgress progress = report(true);
+        Throwable e = failure.get();
+
+        if (e instanceof BotanalyticsAuthorizationException)
+            throw (BotanalyticsAuthorizationException) e;
+
+        if (e instanceof BotanalyticsRequestException)
+            throw (BotanalyticsRequestException) e;
+
+        return progress;
+    }
+
+    private void read(LineReader reader) throws IOException, InterruptedException {
+
+        long reportIntervalNanos = TimeUnit.MILLISECONDS.toNanos(options.getReportIntervalMillis());
+        long nextReport = startNanos + reportIntervalNanos;
+        byte[] line;
+
+        while (failure.get() == null && (line = reader.readLine()) != null) {
+
+            long seq = claim(reader.offset);
+
+            if (seq < 0)
+                return;
+
+            if (isBlank(line)) {
+
+                complete(seq);
+
+            } else {
+
+                String conversation = conversationOf.apply(line);
+                int lane = conversation == null ? (int) (seq % lanes.length) : Math.floorMod(conversation.hashCode(), lanes.length);
+
+                lanes[lane].queue.put(new Item(seq, line));
+            }
+
+            if (System.nanoTime() - nextReport >= 0) {
+
+                report(false);
+
+                nextReport = System.nanoTime() + reportIntervalNanos;
+            }
+        }
+    }
+
+    /**
+     * Assigns the next sequence number to a line ending at the given offset, waiting while the line would not fit into
+     * the ring of tracked lines.
+     * @return The sequence number, or {@code -1} when a lane failed while waiting
+     */
+    private long claim(long endOffset) throws InterruptedException {
+
+        lock.lock();
+
+        try {
+
+            long seq = linesRead;
+
+            while (seq - watermark >= ends.length) {
+
+                if (failure.get() != null)
+                    return -1;
+
+                advanced.await();
+            }
+
+            ends[(int) (seq % ends.length)] = endOffset;
+            linesRead++;
+
+            return seq;
+
+        } finally {
+
+            lock.unlock();
+        }
+    }
+
+    private void complete(long seq) {
+
+        lock.lock();
+
+        try {
+
+            completed[(int) (seq % completed.length)] = true;
+
+            if (seq != watermark)
+                return;
+
+            int slot;
+
+            while (completed[slot = (int) (watermark % completed.length)]) {
+
+                completed[slot] = false;
+                watermarkOffset = ends[slot];
+                watermark++;
+            }
+
+            advanced.signalAll();
+
+        } finally {
+
+            lock.unlock();
+        }
+    }
+
+    private void fail(Throwable e) {
+
+        if (!failure.compareAndSet(null, e))
+            return;
+
+        lock.lock();
+
+        try {
+
+            advanced.signalAll();
+
+        } finally {
+
+            lock.unlock();
+        }
+    }
+
+    private void abort() {
+
+        boolean interrupted = false;
+
+        for (Lane lane : lanes)
+            if (lane != null)
+                lane.thread.interrupt();
+
+        for (Lane lane : lanes) {
+
+            while (lane != null && lane.thread.isAlive()) {
+
+                try {
+
+                    lane.thread.join();
+
+                } catch (InterruptedException e) {
+
+                    interrupted = true;
+                }
+            }
+        }
+
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Writes the checkpoint, if configured, and passes a snapshot to the progress listener.
+     */
+    private BackfillProgress report(boolean done) throws IOException {
+
+        long offset;
+        long lines;
+        long read;
+
+        lock.lock();
+
+        try {
+
+            offset = watermarkOffset;
+            lines = startLines + watermark;
+            read = linesRead;
+
+        } finally {
+
+            lock.unlock();
+        }
+
+        BackfillProgress progress = new BackfillProgress(read, sent.get(), rejected.get(), offset, lines, System.nanoTime() - startNanos, done);
+
+        if (options.getCheckpointFile() != null)
+            writeCheckpoint(options.getCheckpointFile(), offset, lines);
+
+        Consumer<BackfillProgress> listener = options.getProgressListener();
+
+        if (listener != null) {
+
+            try {
+
+                listener.accept(progress);
+
+            } catch (RuntimeException e) {
+
+                LOGGER.warn("Backfill progress listener failed.", e);
+            }
+        }
+
+        return progress;
+    }
+
+    private void readCheckpoint() throws IOException {
+
+        Path file = options.getCheckpointFile();
+
+        if (file == null || !Files.exists(file))
+            return;
+
+        Properties properties = new Properties();
+
+        try (InputStream in = Files.newInputStream(file)) {
+
+            properties.load(in);
+        }
+
+        try {
+
+            startOffset = Long.parseLong(properties.getProperty("offset", "0"));
+            startLines = Long.parseLong(properties.getProperty("lines", "0"));
+
+        } catch (NumberFormatException e) {
+
+            throw new IOException("Malformed backfill checkpoint " + file + ".", e);
+        }
+
+        LOGGER.info("Resuming backfill at line {} from checkpoint {}.", startLines, file);
+    }
+
+    /**
+     * Replaces the checkpoint through a temporary file, so a crash never leaves a partially written checkpoint.
+     */
+    private static void writeCheckpoint(Path file, long offset, long lines) throws IOException {
+
+        Properties properties = new Properties();
+        properties.setProperty("offset", Long.toString(offset));
+        properties.setProperty("lines", Long.toString(lines));
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (OutputStream out = Files.newOutputStream(temporary)) {
+
+            properties.store(out, "Botanalytics backfill checkpoint");
+        }
+
+        try {
+
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        } catch (AtomicMoveNotSupportedException e) {
+
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void skipFully(InputStream input, long bytes) throws IOException {
+
+        long remaining = bytes;
+
+        while (remaining > 0) {
+
+            long skipped = input.skip(remaining);
+
+            if (skipped <= 0) {
+
+                if (input.read() < 0)
+                    throw new IOException("Backfill input ends before the checkpoint offset " + bytes + ".");
+
+                skipped = 1;
+            }
+
+            remaining -= skipped;
+        }
+    }
+
+    private static boolean isBlank(byte[] line) {
+
+        for (byte b : line)
+            if (b != ' ' && b != '\t' && b != '\r')
+                return false;
+
+        return true;
+    }
+
+    /**
+     * Waits as long as the configured rate limit and the client's live traffic require.
+     */
+    private void throttle() throws InterruptedException {
+
+        if (options.isYieldToLiveTraffic())
+            while (client.isDispatchBusy())
+                Thread.sleep(YIELD_MILLIS);
+
+        if (emissionNanos == 0)
+            return;
+
+        while (true) {
+
+            long now = System.nanoTime();
+            long current = nextSendAt.get();
+            long slot = current - now < 0 ? now : current;
+
+            if (nextSendAt.compareAndSet(current, slot + emissionNanos)) {
+
+                TimeUnit.NANOSECONDS.sleep(slot - now);
+
+                return;
+            }
+        }
+    }
+
+    private final class Lane implements Runnable {
+
+        private final BlockingQueue<Item> queue;
+        private Thread thread;
+
+        private Lane(int capacity) {
+
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        @Override
+        public void run() {
+
+            try {
+
+                while (true) {
+
+                    Item item = queue.take();
+
+                    if (item == POISON)
+                        return;
+
+                    if (failure.get() == null)
+                        send(item);
+                }
+
+            } catch (InterruptedException e) {
+
+                // Aborted by the reading thread.
+            }
+        }
+
+        private void send(Item item) throws InterruptedException {
+
+            throttle();
+
+            try {
+
+                client.sendInBackground(uri, item.line);
+
+                sent.incrementAndGet();
+
+            } catch (BotanalyticsJSONException e) {
+
+                LOGGER.warn("Skipping backfill event rejected by the API: {}", e.getMessage());
+
+                rejected.incrementAndGet();
+
+            } catch (BotanalyticsRequestException | BotanalyticsAuthorizationException e) {
+
+                fail(e);
+
+                return;
+            }
+
+            complete(item.seq);
+        }
+    }
+
+    private static final class Item {
+
+        private final long seq;
+        private final byte[] line;
+
+        private Item(long seq, byte[] line) {
+
+            this.seq = seq;
+            this.line = line;
+        }
+    }
+
+    /**
+     * Splits a stream into lines without decoding it, keeping track of the byte offset after the last line.
+     */
+    private static final class LineReader {
+
+        private final InputStream input;
+        private final byte[] buffer = new byte[64 * 1024];
+        private byte[] spill = new byte[256];
+        private int position;
+        private int limit;
+        private long offset;
+
+        private LineReader(InputStream input, long offset) {
+
+            this.input = input;
+            this.offset = offset;
+        }
+
+        /**
+         * @return The next line without its line terminator, or {@code null} at the end of the stream
+         */
+        private byte[] readLine() throws IOException {
+
+            int spilled = 0;
+
+            while (true) {
+
+                if (position == limit) {
+
+                    int read = input.read(buffer);
+
+                    if (read < 0)
+                        return spilled == 0 ? null : copy(spill, 0, spilled);
+
+                    position = 0;
+                    limit = read;
+                }
+
+                for (int i = position; i < limit; i++) {
+
+                    if (buffer[i] != '\n')
+                        continue;
+
+                    byte[] line;
+
+                    if (spilled == 0) {
+
+                        line = copy(buffer, position, i);
+
+                    } else {
+
+                        append(position, i, spilled);
+                        line = copy(spill, 0, spilled + i - position);
+                    }
+
+                    offset += i + 1 - position;
+                    position = i + 1;
+
+                    return line;
+                }
+
+                append(position, limit, spilled);
+                spilled += limit - position;
+                offset += limit - position;
+                position = limit;
+            }
+        }
+
+        private void append(int from, int to, int spilled) {
+
+            int length = to - from;
+
+            if (spilled + length > spill.length)
+                spill = Arrays.copyOf(spill, Math.max(spill.length * 2, spilled + length));
+
+            System.arraycopy(buffer, from, spill, spilled, length);
+        }
+
+        /**
+         * @return Copy of the given range without a trailing carriage return
+         */
+        private static byte[] copy(byte[] bytes, int from, int to) {
+
+            int end = to > from && bytes[to - 1] == '\r' ? to - 1 : to;
+
+            return Arrays.copyOfRange(bytes, from, end);
+        }
+    }
+}
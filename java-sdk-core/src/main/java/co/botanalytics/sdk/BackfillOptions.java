@@ -0,0 +1,192 @@
+package co.botanalytics.sdk;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Options of a bulk import of newline-delimited JSON events, e.g. a conversation archive replayed after an incident.
+ * Instances are immutable and created through {@link #builder()}.
+ * <p>
+ * Events are read one line at a time and sent on {@code parallelism} lanes. All events of a conversation go to the
+ * same lane, so they arrive in the order of the file, while different conversations are sent in parallel. Lanes hold
+ * a bounded number of events, so memory use does not depend on the size of the input.
+ * <p>
+ * With a checkpoint file the import can be resumed: it periodically records the offset below which every event was
+ * sent, and an import started with an existing checkpoint skips to that offset. Events sent after the last checkpoint
+ * are sent again on resume.
+ */
+public final class BackfillOptions {
+
+    private static final BackfillOptions DEFAULTS = builder().build();
+
+    private final int parallelism;
+    private final int laneCapacity;
+    private final double eventsPerSecond;
+    private final boolean yieldToLiveTraffic;
+    private final Path checkpointFile;
+    private final Consumer<BackfillProgress> progressListener;
+    private final long reportIntervalMillis;
+
+    private BackfillOptions(Builder builder) {
+
+        this.parallelism = builder.parallelism;
+        this.laneCapacity = builder.laneCapacity;
+        this.eventsPerSecond = builder.eventsPerSecond;
+        this.yieldToLiveTraffic = builder.yieldToLiveTraffic;
+        this.checkpointFile = builder.checkpointFile;
+        this.progressListener = builder.progressListener;
+        this.reportIntervalMillis = builder.reportIntervalMillis;
+    }
+
+    /**
+     * @return Options with every value set to its default
+     */
+    public static BackfillOptions defaults() {
+
+        return DEFAULTS;
+    }
+
+    public static Builder builder() {
+
+        return new Builder();
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public int getLaneCapacity() {
+        return laneCapacity;
+    }
+
+    public double getEventsPerSecond() {
+        return eventsPerSecond;
+    }
+
+    public boolean isYieldToLiveTraffic() {
+        return yieldToLiveTraffic;
+    }
+
+    public Path getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    public Consumer<BackfillProgress> getProgressListener() {
+        return progressListener;
+    }
+
+    public long getReportIntervalMillis() {
+        return reportIntervalMillis;
+    }
+
+    public static final class Builder {
+
+        private int parallelism = 4;
+        private int laneCapacity = 64;
+        private double eventsPerSecond;
+        private boolean yieldToLiveTraffic = true;
+        private Path checkpointFile;
+        private Consumer<BackfillProgress> progressListener;
+        private long reportIntervalMillis = 5000;
+
+        private Builder() {
+        }
+
+        /**
+         * @param parallelism Number of lanes sending events at the same time, each using one connection
+         * @return This builder
+         */
+        public Builder parallelism(int parallelism) {
+
+            if (parallelism < 1)
+                throw new IllegalArgumentException("parallelism must be positive.");
+
+            this.parallelism = parallelism;
+
+            return this;
+        }
+
+        /**
+         * @param laneCapacity Number of events read ahead per lane
+         * @return This builder
+         */
+        public Builder laneCapacity(int laneCapacity) {
+
+            if (laneCapacity < 1)
+                throw new IllegalArgumentException("laneCapacity must be positive.");
+
+            this.laneCapacity = laneCapacity;
+
+            return this;
+        }
+
+        /**
+         * @param eventsPerSecond Maximum number of events sent per second over all lanes. Unlimited by default.
+         * @return This builder
+         */
+        public Builder rateLimit(double eventsPerSecond) {
+
+            if (!(eventsPerSecond > 0))
+                throw new IllegalArgumentException("eventsPerSecond must be positive.");
+
+            this.eventsPerSecond = eventsPerSecond;
+
+            return this;
+        }
+
+        /**
+         * @param yieldToLiveTraffic Whether lanes pause while the client's dispatch queue for asynchronously logged
+         *                           events is more than half full. Enabled by default.
+         * @return This builder
+         */
+        public Builder yieldToLiveTraffic(boolean yieldToLiveTraffic) {
+
+            this.yieldToLiveTraffic = yieldToLiveTraffic;
+
+            return this;
+        }
+
+        /**
+         * @param checkpointFile File recording how far the import got, created when missing and resumed from otherwise
+         * @return This builder
+         */
+        public Builder checkpointFile(Path checkpointFile) {
+
+            this.checkpointFile = checkpointFile;
+
+            return this;
+        }
+
+        /**
+         * @param progressListener Called on the reading thread once per report interval and when the import ends
+         * @return This builder
+         */
+        public Builder progressListener(Consumer<BackfillProgress> progressListener) {
+
+            this.progressListener = progressListener;
+
+            return this;
+        }
+
+        /**
+         * @param interval How often progress is reported and the checkpoint written
+         * @param unit Unit of the interval
+         * @return This builder
+         */
+        public Builder reportInterval(long interval, TimeUnit unit) {
+
+            if (interval <= 0)
+                throw new IllegalArgumentException("reportInterval must be positive.");
+
+            this.reportIntervalMillis = unit.toMillis(interval);
+
+            return this;
+        }
+
+        public BackfillOptions build() {
+
+            return new BackfillOptions(this);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package co.botanalytics.sdk;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot of a running or finished bulk import, see {@link BackfillOptions}.
+ */
+public final class BackfillProgress {
+
+    private final long linesRead;
+    private final long eventsSent;
+    private final long eventsRejected;
+    private final long checkpointOffset;
+    private final long checkpointLines;
+    private final long elapsedNanos;
+    private final boolean done;
+
+    BackfillProgress(long linesRead, long eventsSent, long eventsRejected, long checkpointOffset, long checkpointLines, long elapsedNanos, boolean done) {
+
+        this.linesRead = linesRead;
+        this.eventsSent = eventsSent;
+        this.eventsRejected = eventsRejected;
+        this.checkpointOffset = checkpointOffset;
+        this.checkpointLines = checkpointLines;
+        this.elapsedNanos = elapsedNanos;
+        this.done = done;
+    }
+
+    /**
+     * @return Lines read by this run, not counting the ones skipped because of a checkpoint
+     */
+    public long getLinesRead() {
+        return linesRead;
+    }
+
+    public long getEventsSent() {
+        return eventsSent;
+    }
+
+    /**
+     * @return Events the API refused as invalid. They are logged and skipped.
+     */
+    public long getEventsRejected() {
+        return eventsRejected;
+    }
+
+    /**
+     * @return Byte offset in the input below which every event was handled, including earlier runs
+     */
+    public long getCheckpointOffset() {
+        return checkpointOffset;
+    }
+
+    /**
+     * @return Number of lines below {@link #getCheckpointOffset()}
+     */
+    public long getCheckpointLines() {
+        return checkpointLines;
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    /**
+     * @return Events sent per second by this run
+     */
+    public double getEventsPerSecond() {
+        return elapsedNanos == 0 ? 0 : eventsSent * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @return {@code true} for the last report of a run, whether it completed or failed
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public String toString() {
+
+        return String.format("BackfillProgress{linesRead=%d, eventsSent=%d, eventsRejected=%d, checkpointOffset=%d, eventsPerSecond=%.1f, done=%b}",
+                linesRead, eventsSent, eventsRejected, checkpointOffset, getEventsPerSecond(), done);
+    }
+}
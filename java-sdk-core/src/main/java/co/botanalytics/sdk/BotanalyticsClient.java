@@ -3,39 +3,76 @@ package co.botanalytics.sdk;
 import co.botanalytics.sdk.exceptions.BotanalyticsAuthorizationException;
 import co.botanalytics.sdk.exceptions.BotanalyticsConfigurationException;
 import co.botanalytics.sdk.exceptions.BotanalyticsJSONException;
+import co.botanalytics.sdk.exceptions.BotanalyticsOverflowException;
 import co.botanalytics.sdk.exceptions.BotanalyticsRequestException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.http.HttpEntity;
 import org.apache.http.HttpStatus;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.ContentType;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
+import org.apache.http.pool.PoolStats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URI;
 import java.net.URISyntaxException;
-
-public abstract class BotanalyticsClient {
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+public abstract class BotanalyticsClient implements Closeable {
 
     protected static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
     private static final Logger LOGGER = LoggerFactory.getLogger(BotanalyticsClient.class);
-    private static final String DEFAULT_DOMAIN = "api.botanalytics.co";
-    private static final int DEFAULT_VERSION = 1;
+    static final String DEFAULT_DOMAIN = "api.botanalytics.co";
+    static final int DEFAULT_VERSION = 1;
     private static final String DEFAULT_ERROR_MESSAGE = "An unknown error returned from endpoint.";
-    private final CloseableHttpClient httpClient = HttpClients.createDefault();
+    private static final long SPOOL_CLOSE_GRACE_MILLIS = 1000;
+    private static final int MIN_WARNINGS_BODY_BYTES = "{\"warnings\":[\"\"]}".length();
+    private final Transport transport;
+    private final boolean ownsTransport;
     private final String token;
     private final URI baseUri;
-
-    public BotanalyticsClient(String token, String domain, int version) throws BotanalyticsConfigurationException {
+    private final AsyncDispatcher dispatcher;
+    private final EventBatcher batcher;
+    private final DiskSpool spool;
+    private final SpoolReplayer replayer;
+    private final RetryPolicy retryPolicy;
+    private final RetryPolicy syncRetryPolicy;
+    private final CircuitBreaker circuitBreaker;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final MetricsListener metrics;
+    private final boolean metricsEnabled;
+    private final ConcurrentMap<URI, RequestTemplate> templates = new ConcurrentHashMap<>();
+    private final CompressionCodec compression;
+    private final int compressionThreshold;
+    private final String wireContentType;
+    private final boolean checkWarnings;
+    private final int subscriberMaxInFlight;
+    private final BotanalyticsClientGroup group;
+    private final int maxPending;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final long drainTimeoutMillis;
+    private final Thread shutdownHook;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile WireFormat wireFormat;
+    private volatile long throttledUntil;
+    private volatile long lastContactMillis = -1;
+
+    public BotanalyticsClient(String token, String domain, int version, BotanalyticsConfiguration configuration) throws BotanalyticsConfigurationException {
 
         if (token == null || token.trim().length() == 0) {
 
@@ -51,8 +88,99 @@ public abstract class BotanalyticsClient {
             throw new BotanalyticsConfigurationException("domain");
         }
 
+        if (configuration == null) {
+
+            LOGGER.error("Failed to configure Botanalytics client due to missing 'configuration' field.");
+
+            throw new BotanalyticsConfigurationException("configuration");
+        }
+
         this.token = token;
-        this.baseUri = constructBaseURI(domain, version);
+        this.baseUri = constructBaseURI(configuration.getScheme(), domain, version);
+        this.retryPolicy = configuration.getRetryPolicy();
+        this.syncRetryPolicy = configuration.getSyncRetryPolicy();
+        this.circuitBreaker = new CircuitBreaker(configuration.getCircuitBreakerThreshold(), configuration.getCircuitBreakerOpenMillis());
+        this.concurrencyLimiter = newConcurrencyLimiter(configuration);
+        this.spool = openSpool(token, configuration);
+        this.ownsTransport = configuration.getTransport() == null;
+        this.transport = ownsTransport ? new ApacheHttpTransport(configuration) : configuration.getTransport();
+        this.dispatcher = new AsyncDispatcher(configuration);
+        this.batcher = configuration.isBatchingEnabled() ? new EventBatcher(configuration, this::dispatch) : null;
+        this.metrics = configuration.getMetricsListener();
+        this.metricsEnabled = metrics != MetricsListener.NONE;
+        this.compression = configuration.getCompression();
+        this.compressionThreshold = configuration.getCompressionThreshold();
+        this.wireFormat = configuration.getWireFormat();
+        this.wireContentType = wireFormat == null ? null : wireFormat.getContentType();
+        this.checkWarnings = configuration.isCheckWarnings();
+        this.subscriberMaxInFlight = subscriberMaxInFlight(configuration);
+        this.group = null;
+        this.maxPending = configuration.getMaxPendingPerClient();
+        this.drainTimeoutMillis = configuration.getDrainTimeoutMillis();
+
+        metrics.onStart(new Gauges());
+
+        // Started last: the replay thread delivers through this client, and the hook closes the replayer.
+        this.replayer = spool == null ? null : new SpoolReplayer(spool, this::deliverSpooled, configuration.getSpoolRetryIntervalMillis());
+        this.shutdownHook = configuration.isShutdownHook() ? addShutdownHook(this::close, "botanalytics-client-shutdown") : null;
+    }
+
+    /**
+     * Constructs a client sharing the connection pool, dispatcher threads and queue, batch scheduler and circuit
+     * breaker of a group, so it costs little more than its token. See {@link BotanalyticsClientGroup}.
+     * @param token Botanalytics token
+     * @param group Group providing the domain, version, configuration and shared resources
+     * @throws BotanalyticsConfigurationException Thrown when the token or group is missing
+     */
+    public BotanalyticsClient(String token, BotanalyticsClientGroup group) throws BotanalyticsConfigurationException {
+
+        if (token == null || token.trim().length() == 0) {
+
+            LOGGER.error("Failed to configure Botanalytics client due to missing 'token' field.");
+
+            throw new BotanalyticsConfigurationException("token");
+        }
+
+        if (group == null) {
+
+            LOGGER.error("Failed to configure Botanalytics client due to missing 'group' field.");
+
+            throw new BotanalyticsConfigurationException("group");
+        }
+
+        BotanalyticsConfiguration configuration = group.getConfiguration();
+
+        this.token = token;
+        this.baseUri = group.getBaseUri();
+        this.retryPolicy = configuration.getRetryPolicy();
+        this.syncRetryPolicy = configuration.getSyncRetryPolicy();
+        this.circuitBreaker = group.getCircuitBreaker();
+        this.concurrencyLimiter = group.getConcurrencyLimiter();
+        this.spool = null;
+        this.ownsTransport = false;
+        this.transport = group.getTransport();
+        this.dispatcher = group.getDispatcher();
+        this.batcher = configuration.isBatchingEnabled() ? new EventBatcher(configuration, group.getBatchScheduler(), this::dispatch) : null;
+        this.replayer = null;
+        this.metrics = configuration.getMetricsListener();
+        this.metricsEnabled = metrics != MetricsListener.NONE;
+        this.compression = configuration.getCompression();
+        this.compressionThreshold = configuration.getCompressionThreshold();
+        this.wireFormat = configuration.getWireFormat();
+        this.wireContentType = wireFormat == null ? null : wireFormat.getContentType();
+        this.checkWarnings = configuration.isCheckWarnings();
+        this.subscriberMaxInFlight = subscriberMaxInFlight(configuration);
+        this.group = group;
+        this.maxPending = configuration.getMaxPendingPerClient();
+        this.drainTimeoutMillis = configuration.getDrainTimeoutMillis();
+        this.shutdownHook = null;
+
+        group.register(this);
+    }
+
+    public BotanalyticsClient(String token, String domain, int version) throws BotanalyticsConfigurationException {
+
+        this(token, domain, version, BotanalyticsConfiguration.defaults());
     }
 
     public BotanalyticsClient(String token, String domain) throws BotanalyticsConfigurationException {
@@ -65,11 +193,22 @@ public abstract class BotanalyticsClient {
         this(token, DEFAULT_DOMAIN);
     }
 
-    private URI constructBaseURI(String domain, int version) throws BotanalyticsConfigurationException {
+    public BotanalyticsClient(String token, BotanalyticsConfiguration configuration) throws BotanalyticsConfigurationException {
+
+        this(token, DEFAULT_DOMAIN, DEFAULT_VERSION, configuration);
+    }
+
+    private static int subscriberMaxInFlight(BotanalyticsConfiguration configuration) {
+
+        return Math.min(configuration.getAsyncQueueCapacity(),
+                Math.max(configuration.getMaxConnectionsPerRoute(), configuration.getBatchMaxEvents()));
+    }
+
+    static URI constructBaseURI(String scheme, String domain, int version) throws BotanalyticsConfigurationException {
 
         try {
 
-            return new URI("https", domain, "/v".concat(Integer.toString(version)).concat("/"), null);
+            return new URI(scheme, domain, "/v".concat(Integer.toString(version)).concat("/"), null, null);
 
         } catch (URISyntaxException e) {
 
@@ -79,6 +218,30 @@ public abstract class BotanalyticsClient {
         }
     }
 
+    static ConcurrencyLimiter newConcurrencyLimiter(BotanalyticsConfiguration configuration) {
+
+        LimitAlgorithm algorithm = configuration.getConcurrencyLimit();
+
+        return algorithm == null ? null : new ConcurrencyLimiter(algorithm, configuration.getMaxConnectionsPerRoute());
+    }
+
+    private static DiskSpool openSpool(String token, BotanalyticsConfiguration configuration) throws BotanalyticsConfigurationException {
+
+        if (configuration.getSpoolDirectory() == null)
+            return null;
+
+        try {
+
+            return new DiskSpool(configuration.getSpoolDirectory(), token, configuration.getSpoolSegmentBytes(), configuration.getSpoolMaxBytes(), configuration.isSpoolFsync());
+
+        } catch (IOException e) {
+
+            LOGGER.error("Failed to open event spool.", e);
+
+            throw new BotanalyticsConfigurationException(e);
+        }
+    }
+
     protected Logger getLogger() {
 
         return LOGGER;
@@ -88,51 +251,794 @@ public abstract class BotanalyticsClient {
         return baseUri;
     }
 
+    /**
+     * Queues the payload for delivery on a background thread and returns immediately. The returned future completes
+     * once the request finished, or exceptionally with the same exceptions {@link #sendRequest(URI, byte[])} throws,
+     * or with {@link co.botanalytics.sdk.exceptions.BotanalyticsOverflowException} when the queue overflowed.
+     */
+    protected CompletableFuture<Void> sendRequestAsync(URI uri, String payload) {
+
+        return sendRequestAsync(uri, payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Same as {@link #sendRequestAsync(URI, String)} for a payload that is already UTF-8 encoded JSON.
+     */
+    protected CompletableFuture<Void> sendRequestAsync(URI uri, byte[] payload) {
+
+        if (closed.get()) {
+
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(new IllegalStateException("Botanalytics client is closed."));
+
+            return future;
+        }
+
+        if (pending.incrementAndGet() > maxPending) {
+
+            pending.decrementAndGet();
+
+            if (metricsEnabled)
+                metrics.onDropped(endpointOf(uri));
+
+            String reason = "Dropped event since the client has " + maxPending + " events pending.";
+
+            LOGGER.warn(reason);
+
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(new BotanalyticsOverflowException(reason));
+
+            return future;
+        }
+
+        CompletableFuture<Void> future = batcher != null ? batcher.add(uri, payload) : dispatch(uri, payload);
+
+        if (!metricsEnabled) {
+
+            future.whenComplete((result, error) -> pending.decrementAndGet());
+
+            return future;
+        }
+
+        final String endpoint = endpointOf(uri);
+
+        metrics.onEnqueued(endpoint);
+
+        future.whenComplete((result, error) -> {
+
+            pending.decrementAndGet();
+
+            if (error instanceof BotanalyticsOverflowException)
+                metrics.onDropped(endpoint);
+        });
+
+        return future;
+    }
+
+    /**
+     * @return Events logged asynchronously by this client that were neither delivered nor dropped yet
+     */
+    public int getPendingEvents() {
+
+        return pending.get();
+    }
+
+    int getBufferedEvents() {
+
+        return batcher == null ? 0 : batcher.getBufferedEvents();
+    }
+
+    /**
+     * Reports an event that a subclass discarded on purpose, e.g. by sampling, to the configured
+     * {@link MetricsListener}.
+     */
+    protected void recordFiltered(URI uri) {
+
+        if (metricsEnabled)
+            metrics.onFiltered(endpointOf(uri));
+    }
+
+    /**
+     * Creates a Reactive Streams subscriber logging every event it receives to the given endpoint through
+     * {@link #sendRequestAsync(URI, byte[])}. It keeps as many events in flight as there are connections per route, or
+     * as fit into a batch when that is larger, bounded by the dispatch queue capacity so the queue never overflows.
+     */
+    protected <T> EventSubscriber<T> newSubscriber(URI uri, EventSubscriber.Serializer<? super T> serializer) {
+
+        return newSubscriber(uri, serializer, subscriberMaxInFlight);
+    }
+
+    /**
+     * Same as {@link #newSubscriber(URI, EventSubscriber.Serializer)} with an explicit limit of events in flight.
+     * Limits above the dispatch queue capacity let events be dropped or block according to the overflow policy.
+     */
+    protected <T> EventSubscriber<T> newSubscriber(URI uri, EventSubscriber.Serializer<? super T> serializer, int maxInFlight) {
+
+        if (maxInFlight < 1)
+            throw new IllegalArgumentException("maxInFlight must be at least 1.");
+
+        return new EventSubscriber<>(this, uri, serializer, maxInFlight);
+    }
+
+    /**
+     * Sends newline-delimited JSON events, one per line, to the given endpoint and blocks until the input is exhausted.
+     * Events are sent synchronously on {@link BackfillOptions#getParallelism()} dedicated threads, bypassing the
+     * batcher and dispatch queue, so they only compete with live traffic for pooled connections. Blank lines are
+     * skipped.
+     * @param conversationOf Returns the conversation of an event, whose events are then sent in input order, or
+     *                       {@code null} when the event may be sent in any order
+     * @throws BotanalyticsRequestException Thrown when an event could not be delivered, after the checkpoint was saved
+     * @throws BotanalyticsAuthorizationException Thrown when the token was refused, after the checkpoint was saved
+     */
+    protected BackfillProgress backfill(URI uri, InputStream input, BackfillOptions options, Function<byte[], String> conversationOf) throws IOException, InterruptedException, BotanalyticsRequestException, BotanalyticsAuthorizationException {
+
+        return new Backfill(this, uri, options, conversationOf).run(input);
+    }
+
+    /**
+     * @return {@code true} while asynchronously logged events are queueing up, so a backfill should hold back
+     */
+    boolean isDispatchBusy() {
+
+        return dispatcher.isBusy();
+    }
+
+    /**
+     * Sends every batched event and waits until all asynchronously logged events have been delivered or dropped.
+     * @throws InterruptedException Thrown when the calling thread is interrupted while waiting
+     */
+    public void flush() throws InterruptedException {
+
+        awaitDrained(Long.MAX_VALUE);
+    }
+
+    /**
+     * Closes the client within the configured drain timeout, see {@link #close(long, TimeUnit)}.
+     */
+    @Override
+    public void close() {
+
+        close(drainTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops accepting events, sends batched and queued events until the deadline, then stops the background threads
+     * and releases the HTTP connections. Events still queued at the deadline are written to the spool when one is
+     * configured and dropped otherwise; requests still in flight are aborted, which leaves their events in the spool.
+     * Spooled events are sent by the next client opening the spool directory. Events logged asynchronously after this
+     * call fail with an {@link IllegalStateException}. Closing a closed client does nothing.
+     * @param timeout Maximum time to wait for queued events to be sent
+     * @param unit Unit of the timeout
+     * @return {@code true} when every event was sent before the deadline
+     */
+    public boolean close(long timeout, TimeUnit unit) {
+
+        if (!closed.compareAndSet(false, true))
+            return true;
+
+        removeShutdownHook(shutdownHook);
+
+        boolean drained;
+
+        try {
+
+            drained = awaitDrained(unit.toMillis(timeout));
+
+        } catch (InterruptedException e) {
+
+            Thread.currentThread().interrupt();
+
+            drained = false;
+        }
+
+        if (batcher != null)
+            batcher.close();
+
+        if (group != null) {
+
+            group.unregister(this);
+
+            return drained;
+        }
+
+        dispatcher.close();
+
+        if (!drained)
+            abandonQueued();
+
+        metrics.onClose();
+
+        if (ownsTransport) {
+
+            try {
+
+                transport.close();
+
+            } catch (IOException e) {
+
+                LOGGER.warn("Failed to close transport.", e);
+            }
+        }
+
+        if (spool != null) {
+
+            replayer.close();
+
+            try {
+
+                // Aborted requests still finish writing to the spool.
+                dispatcher.awaitIdle(SPOOL_CLOSE_GRACE_MILLIS);
+
+            } catch (InterruptedException e) {
+
+                Thread.currentThread().interrupt();
+            }
+
+            try {
+
+                spool.close();
+
+            } catch (IOException e) {
+
+                LOGGER.warn("Failed to close event spool.", e);
+            }
+        }
+
+        return drained;
+    }
+
+    /**
+     * @return Backlog and connectivity of the client, for health and readiness probes
+     */
+    public ClientHealth getHealth() {
+
+        return new ClientHealth(closed.get(), dispatcher.isBusy(), circuitBreaker.getState() == CircuitBreaker.State.OPEN,
+                isThrottled(), dispatcher.getQueueDepth(), pending.get(), getBufferedEvents(),
+                spool == null ? 0 : spool.getPendingCount(), lastContactMillis);
+    }
+
+    /**
+     * Flushes batched events and waits for the events of this client to be delivered or dropped.
+     * @return {@code false} when the timeout elapsed first
+     */
+    private boolean awaitDrained(long timeoutMillis) throws InterruptedException {
+
+        if (batcher != null)
+            batcher.flushAll();
+
+        if (group == null)
+            return dispatcher.awaitIdle(timeoutMillis);
+
+        long start = System.nanoTime();
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+        while (pending.get() > 0) {
+
+            if (System.nanoTime() - start >= timeoutNanos)
+                return false;
+
+            Thread.sleep(5);
+        }
+
+        return true;
+    }
+
+    /**
+     * Takes the events still queued after the drain deadline off the dispatcher, writing them to the spool if possible.
+     */
+    private void abandonQueued() {
+
+        AtomicInteger spooled = new AtomicInteger();
+
+        int abandoned = dispatcher.abandonQueued(job -> {
+
+            if (spool == null || !(job instanceof Send))
+                return false;
+
+            Send send = (Send) job;
+
+            if (appendToSpool(send.uri, send.payload) == null)
+                return false;
+
+            spooled.incrementAndGet();
+
+            return true;
+
+        }, "Botanalytics client closed before the event was sent.");
+
+        if (abandoned > 0)
+            LOGGER.warn("Drain timeout elapsed with {} requests queued, {} written to the spool and {} dropped.",
+                    abandoned, spooled.get(), abandoned - spooled.get());
+    }
+
+    /**
+     * Registers a JVM shutdown hook closing the client or group.
+     */
+    static Thread addShutdownHook(Runnable close, String name) {
+
+        Thread hook = new Thread(close, name);
+
+        Runtime.getRuntime().addShutdownHook(hook);
+
+        return hook;
+    }
+
+    /**
+     * Unregisters the hook of a client or group closed before the JVM shuts down, so it can be garbage collected.
+     */
+    static void removeShutdownHook(Thread hook) {
+
+        if (hook == null || hook == Thread.currentThread())
+            return;
+
+        try {
+
+            Runtime.getRuntime().removeShutdownHook(hook);
+
+        } catch (IllegalStateException e) {
+
+            // The JVM is already shutting down.
+        }
+    }
+
+    private CompletableFuture<Void> dispatch(final URI uri, final byte[] payload) {
+
+        return dispatcher.submit(new Send(uri, payload));
+    }
+
+    /**
+     * Sends the payload on the calling thread, retrying network errors, {@code 429} and {@code 5xx} responses as
+     * allowed by the configured sync {@link RetryPolicy}, which makes a single attempt by default. When a spool is configured the event is written to it first and
+     * only acknowledged once the API accepted it; requests that still fail then leave the event in the spool for
+     * background redelivery instead of throwing {@link BotanalyticsRequestException}.
+     */
     protected void sendRequest(URI uri, String payload) throws BotanalyticsRequestException, BotanalyticsAuthorizationException, BotanalyticsJSONException {
 
-        HttpPost httpPost = new HttpPost(uri.toString());
+        sendRequest(uri, payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Same as {@link #sendRequest(URI, String)} for a payload that is already UTF-8 encoded JSON, which saves callers
+     * able to serialize straight to bytes an intermediate string.
+     */
+    protected void sendRequest(URI uri, byte[] body) throws BotanalyticsRequestException, BotanalyticsAuthorizationException, BotanalyticsJSONException {
+
+        send(uri, body, syncRetryPolicy);
+    }
+
+    /**
+     * Same as {@link #sendRequest(URI, byte[])} for a thread that is not the caller's, which retries as allowed by the
+     * background {@link RetryPolicy}.
+     */
+    void sendInBackground(URI uri, byte[] body) throws BotanalyticsRequestException, BotanalyticsAuthorizationException, BotanalyticsJSONException {
+
+        send(uri, body, retryPolicy);
+    }
+
+    private void send(URI uri, byte[] body, RetryPolicy policy) throws BotanalyticsRequestException, BotanalyticsAuthorizationException, BotanalyticsJSONException {
+
+        DiskSpool.Entry entry = spool == null ? null : appendToSpool(uri, body);
+        WireBody wireBody = encode(body);
+
+        if (entry == null) {
+
+            int statusCode = executeWithRetry(uri, token, wireBody, policy);
+
+            if (isRetryable(statusCode)) {
+
+                LOGGER.error("Botanalytics API responded with status {}.", statusCode);
+
+                throw new BotanalyticsRequestException("Botanalytics API responded with status " + statusCode + ".");
+            }
+
+            return;
+        }
+
+        int statusCode;
+
+        try {
+
+            statusCode = executeWithRetry(uri, token, wireBody, policy);
+
+        } catch (BotanalyticsRequestException e) {
+
+            LOGGER.warn("Event kept in spool for redelivery.");
+
+            replayer.enqueue(entry);
+
+            return;
+
+        } catch (BotanalyticsAuthorizationException | BotanalyticsJSONException e) {
+
+            spool.acknowledge(entry);
+
+            throw e;
+        }
+
+        if (isRetryable(statusCode)) {
+
+            LOGGER.warn("Botanalytics API responded with status {}, event kept in spool for redelivery.", statusCode);
+
+            replayer.enqueue(entry);
+
+        } else {
+
+            spool.acknowledge(entry);
+        }
+    }
+
+    /**
+     * Transcodes the JSON body to the wire format, unless the API rejected it, then compresses it once for all attempts
+     * when a codec is configured and the body reaches the threshold. The spool keeps the JSON payload, so spooled
+     * events survive a change of format or codec.
+     */
+    private WireBody encode(byte[] json) {
+
+        WireFormat format = wireFormat;
+
+        if (format != null) {
+
+            try {
+
+                return compress(json, format.encode(json), format.getContentType());
+
+            } catch (IOException e) {
+
+                LOGGER.warn("Failed to encode request body as {}, sending it as JSON.", format.getContentType(), e);
+            }
+        }
+
+        return compress(json, json, null);
+    }
+
+    private WireBody compress(byte[] json, byte[] body, String contentType) {
+
+        if (compression == null || body.length < compressionThreshold)
+            return new WireBody(json, body, contentType, null);
+
+        try {
+
+            byte[] compressed = compression.compress(body);
 
-        httpPost.setHeader("Authorization", "Token ".concat(token));
+            if (compressed.length < body.length)
+                return new WireBody(json, compressed, contentType, compression.getEncoding());
 
-        httpPost.setEntity(new StringEntity(payload, ContentType.APPLICATION_JSON));
+        } catch (IOException e) {
+
+            LOGGER.warn("Failed to compress request body, sending it uncompressed.", e);
+        }
+
+        return new WireBody(json, body, contentType, null);
+    }
+
+    /**
+     * Switches the client to JSON for good once the API answered {@code 415 Unsupported Media Type} to its wire format.
+     * @return The body encoded as JSON
+     */
+    private WireBody rejectWireFormat(WireBody body) {
 
-        CloseableHttpResponse response;
+        if (wireFormat != null) {
+
+            wireFormat = null;
+
+            LOGGER.warn("Botanalytics API does not accept {} request bodies, sending JSON instead.", body.contentType);
+        }
+
+        return encode(body.json);
+    }
+
+    private DiskSpool.Entry appendToSpool(URI uri, byte[] body) {
 
         try {
 
-            response = httpClient.execute(httpPost);
+            DiskSpool.Entry entry = spool.append(uri, body);
+
+            if (entry == null)
+                LOGGER.warn("Event of {} bytes does not fit into a spool segment, sending it without spooling.", body.length);
+
+            return entry;
 
         } catch (IOException e) {
 
-            LOGGER.error("Failed to send request.", e);
+            LOGGER.warn("Failed to write event to spool, sending it without spooling.", e);
 
-            throw new BotanalyticsRequestException(e);
+            return null;
         }
+    }
+
+    private boolean deliverSpooled(DiskSpool.Record record) {
+
+        try {
+
+            return !isRetryable(sendOnce(record.uri, record.token, encode(record.payload)).statusCode);
+
+        } catch (BotanalyticsRequestException e) {
+
+            return false;
 
-        int statusCode = response.getStatusLine().getStatusCode();
+        } catch (BotanalyticsAuthorizationException | BotanalyticsJSONException e) {
 
-        if (statusCode == HttpStatus.SC_UNAUTHORIZED) {
+            LOGGER.warn("Dropping spooled event rejected by Botanalytics API.", e);
+
+            return true;
+        }
+    }
+
+    private static boolean isRetryable(int statusCode) {
+
+        return statusCode == 429 || statusCode >= 500;
+    }
+
+    /**
+     * Sends the request, retrying network errors and retryable responses as allowed by the retry policy.
+     * @return Status code of the last attempt
+     */
+    private int executeWithRetry(URI uri, String token, WireBody body, RetryPolicy policy) throws BotanalyticsRequestException, BotanalyticsAuthorizationException, BotanalyticsJSONException {
+
+        for (int attempt = 1; ; attempt++) {
+
+            if (body.contentType != null && wireFormat == null)
+                body = encode(body.json);
+
+            Outcome outcome;
 
             try {
 
-                String errorMessage = extractErrorMessage(response.getEntity().getContent());
+                outcome = sendOnce(uri, token, body);
 
-                LOGGER.error(errorMessage);
+            } catch (BotanalyticsRequestException e) {
 
-                throw new BotanalyticsAuthorizationException(errorMessage);
+                if (attempt >= policy.getMaxAttempts() || circuitBreaker.getState() == CircuitBreaker.State.OPEN || isThrottled())
+                    throw e;
 
-            } catch (IOException e) {
+                backOff(policy, attempt, -1);
 
-                LOGGER.error("Failed to parse response body.", e);
+                continue;
+            }
 
-                throw new BotanalyticsJSONException("Failed to parse response body.", e);
+            if (outcome.statusCode == 429 && group != null) {
+
+                throttle(outcome.retryAfterMillis);
+
+                return outcome.statusCode;
             }
 
-        } else if (statusCode == HttpStatus.SC_FORBIDDEN) {
+            if (!isRetryable(outcome.statusCode) || attempt >= policy.getMaxAttempts())
+                return outcome.statusCode;
+
+            LOGGER.warn("Botanalytics API responded with status {}, retrying request.", outcome.statusCode);
+
+            backOff(policy, attempt, outcome.retryAfterMillis);
+        }
+    }
+
+    /**
+     * Makes this client fail fast for the delay requested by a {@code 429} response instead of waiting for it on a
+     * dispatcher thread shared with the other clients of its group.
+     */
+    private void throttle(long retryAfterMillis) {
+
+        long delayMillis = retryPolicy.delayMillis(1, retryAfterMillis);
+
+        LOGGER.warn("Botanalytics API throttled the token, failing its events fast for {} ms.", delayMillis);
+
+        throttledUntil = System.nanoTime() + Math.max(1, TimeUnit.MILLISECONDS.toNanos(delayMillis));
+    }
+
+    private boolean isThrottled() {
+
+        long until = throttledUntil;
+
+        return until != 0 && until - System.nanoTime() > 0;
+    }
+
+    private void backOff(RetryPolicy policy, int attempt, long retryAfterMillis) throws BotanalyticsRequestException {
+
+        try {
+
+            Thread.sleep(policy.delayMillis(attempt, retryAfterMillis));
+
+        } catch (InterruptedException e) {
+
+            Thread.currentThread().interrupt();
+
+            throw new BotanalyticsRequestException("Interrupted while waiting to retry request.");
+        }
+    }
+
+    /**
+     * Makes a single attempt guarded by the circuit breaker. Network errors and retryable responses count as
+     * failures; any other response, including authorization errors, proves the API is up. In a group a {@code 429}
+     * only throttles the client's own token, so it does not open the breaker shared with the other tokens either. The
+     * same verdict and the round trip time feed the adaptive concurrency limiter, when configured.
+     */
+    private Outcome sendOnce(URI uri, String token, WireBody body) throws BotanalyticsRequestException, BotanalyticsAuthorizationException, BotanalyticsJSONException {
+
+        if (isThrottled())
+            throw new BotanalyticsRequestException("Botanalytics API is throttling the token, failing fast until the requested delay elapsed.");
+
+        long permit = acquirePermit();
+
+        if (!circuitBreaker.tryAcquire()) {
+
+            if (concurrencyLimiter != null)
+                concurrencyLimiter.cancel();
+
+            throw new BotanalyticsRequestException("Circuit breaker is open, Botanalytics API is considered unavailable.");
+        }
+
+        boolean healthy = false;
+
+        try {
+
+            Outcome outcome = execute(uri, token, body);
+
+            if (outcome.statusCode == HttpStatus.SC_UNSUPPORTED_MEDIA_TYPE && body.contentType != null)
+                outcome = execute(uri, token, rejectWireFormat(body));
+
+            healthy = !isRetryable(outcome.statusCode) || (group != null && outcome.statusCode == 429);
+
+            return outcome;
+
+        } catch (BotanalyticsAuthorizationException | BotanalyticsJSONException e) {
+
+            healthy = true;
+
+            throw e;
+
+        } finally {
+
+            if (healthy) {
+
+                circuitBreaker.onSuccess();
+                lastContactMillis = System.currentTimeMillis();
+
+            } else {
+
+                circuitBreaker.onFailure();
+            }
+
+            if (concurrencyLimiter != null)
+                concurrencyLimiter.release(permit, !healthy);
+        }
+    }
+
+    /**
+     * Waits for the adaptive concurrency limiter to let another request out.
+     * @return Start time of the attempt, or 0 when the limiter is off
+     */
+    private long acquirePermit() throws BotanalyticsRequestException {
+
+        if (concurrencyLimiter == null)
+            return 0;
+
+        try {
+
+            return concurrencyLimiter.acquire();
+
+        } catch (InterruptedException e) {
+
+            Thread.currentThread().interrupt();
+
+            throw new BotanalyticsRequestException("Interrupted while waiting for the concurrency limit.");
+        }
+    }
+
+    private Outcome execute(URI uri, String token, WireBody body) throws BotanalyticsRequestException, BotanalyticsAuthorizationException, BotanalyticsJSONException {
+
+        RequestTemplate template = template(uri);
+        TransportRequest request = template.newRequest(token, body.bytes, body.contentType, body.encoding);
+
+        long start = metricsEnabled ? System.nanoTime() : 0;
+
+        TransportResponse response;
+
+        try {
+
+            response = transport.send(request);
+
+        } catch (IOException e) {
+
+            if (metricsEnabled)
+                metrics.onSendFailed(template.getEndpoint(), System.nanoTime() - start, e);
+
+            LOGGER.error("Failed to send request.", e);
+
+            throw new BotanalyticsRequestException(e);
+        }
+
+        try {
+
+            int statusCode = response.getStatusCode();
+
+            if (isRetryable(statusCode))
+                return new Outcome(statusCode, parseRetryAfter(response.getHeader("Retry-After")));
+
+            if (statusCode == HttpStatus.SC_UNSUPPORTED_MEDIA_TYPE && body.contentType != null)
+                return new Outcome(statusCode, -1);
+
+            handleResponse(response);
+
+            return new Outcome(statusCode, -1);
+
+        } finally {
+
+            response.close();
+
+            if (metricsEnabled)
+                metrics.onSent(template.getEndpoint(), response.getStatusCode(), body.bytes.length, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return Path of the URI relative to the base URI, e.g. {@code messages/rbm/}
+     */
+    private String endpointOf(URI uri) {
+
+        return template(uri).getEndpoint();
+    }
+
+    /**
+     * @return Template of requests to the URI, created on first use and kept for the lifetime of the client
+     */
+    private RequestTemplate template(URI uri) {
+
+        RequestTemplate template = templates.get(uri);
+
+        if (template == null) {
+
+            URI relative = baseUri.relativize(uri);
+            String endpoint = relative.isAbsolute() ? uri.getPath() : relative.toString();
+
+            template = templates.computeIfAbsent(uri, key -> new RequestTemplate(key, endpoint, token, wireContentType, compression == null ? null : compression.getEncoding()));
+        }
+
+        return template;
+    }
+
+    /**
+     * @return Delay in milliseconds requested by a {@code Retry-After} header in either delta-seconds or HTTP-date
+     * form, or -1 when the header is absent or malformed
+     */
+    static long parseRetryAfter(String value) {
+
+        if (value == null)
+            return -1;
+
+        value = value.trim();
+
+        try {
+
+            return Math.max(0, Long.parseLong(value) * 1000);
+
+        } catch (NumberFormatException e) {
+
+            // Not delta-seconds, try HTTP-date below.
+        }
+
+        try {
+
+            ZonedDateTime date = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+
+            return Math.max(0, date.toInstant().toEpochMilli() - System.currentTimeMillis());
+
+        } catch (DateTimeParseException e) {
+
+            return -1;
+        }
+    }
+
+    private void handleResponse(TransportResponse response) throws BotanalyticsAuthorizationException, BotanalyticsJSONException {
+
+        int statusCode = response.getStatusCode();
+
+        if (statusCode == HttpStatus.SC_UNAUTHORIZED || statusCode == HttpStatus.SC_FORBIDDEN) {
 
             try {
 
-                String errorMessage = extractErrorMessage(response.getEntity().getContent());
+                InputStream body = response.getBody();
+
+                String errorMessage = body == null ? DEFAULT_ERROR_MESSAGE : extractErrorMessage(body);
 
                 LOGGER.error(errorMessage);
 
@@ -145,22 +1051,45 @@ public abstract class BotanalyticsClient {
                 throw new BotanalyticsJSONException("Failed to parse response body.", e);
             }
 
-        } else {
+        } else if (checkWarnings && mayContainWarnings(response)) {
 
             try {
 
-                printWarningsIfPresent(response.getEntity().getContent());
+                InputStream body = response.getBody();
+
+                if (body != null)
+                    printWarningsIfPresent(body);
 
             } catch (IOException e) {
 
                 LOGGER.error("Failed to parse response body.", e);
-                e.printStackTrace();
 
                 throw new BotanalyticsJSONException("Failed to parse response body.", e);
             }
         }
     }
 
+    /**
+     * @return {@code false} when the declared body length is too short for a warning, e.g. the usual {@code {}}, so the
+     * body can be discarded without creating a parser
+     */
+    private static boolean mayContainWarnings(TransportResponse response) {
+
+        String contentLength = response.getHeader("Content-Length");
+
+        if (contentLength == null)
+            return true;
+
+        try {
+
+            return Long.parseLong(contentLength.trim()) >= MIN_WARNINGS_BODY_BYTES;
+
+        } catch (NumberFormatException e) {
+
+            return true;
+        }
+    }
+
     private String extractErrorMessage(InputStream content) throws IOException {
 
         JsonNode rootNode = OBJECT_MAPPER.readTree(content);
@@ -182,28 +1111,166 @@ public abstract class BotanalyticsClient {
         return errorMessageNode.asText();
     }
 
+    /**
+     * Streams the body with a token-level parser, skipping every top-level value but {@code warnings} without building
+     * a tree, and stops once the warnings were logged to {@link #getLogger()}. Whatever is left unread is discarded
+     * when the response closes.
+     */
     private void printWarningsIfPresent(InputStream content) throws IOException {
 
-        JsonNode rootNode = OBJECT_MAPPER.readTree(content);
+        try (JsonParser parser = OBJECT_MAPPER.getFactory().createParser(content)) {
 
-        if (rootNode == null)
-            return;
+            if (parser.nextToken() != JsonToken.START_OBJECT)
+                return;
 
-        if (!rootNode.has("warnings")) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
 
-            return;
+                boolean warnings = "warnings".equals(parser.getCurrentName());
+                JsonToken value = parser.nextToken();
+
+                if (!warnings) {
+
+                    parser.skipChildren();
+
+                    continue;
+                }
+
+                if (value != JsonToken.START_ARRAY)
+                    return;
+
+                while ((value = parser.nextToken()) != JsonToken.END_ARRAY && value != null) {
+
+                    getLogger().warn(parser.getValueAsString(""));
+
+                    parser.skipChildren();
+                }
+
+                return;
+            }
         }
+    }
 
-        JsonNode warningsNode = rootNode.get("warnings");
+    private final class Gauges implements ClientGauges {
 
-        if (!warningsNode.isArray()) {
+        @Override
+        public int getQueueDepth() {
 
-            return;
+            return dispatcher.getQueueDepth();
+        }
+
+        @Override
+        public int getBufferedEvents() {
+
+            return BotanalyticsClient.this.getBufferedEvents();
+        }
+
+        @Override
+        public int getSpoolBacklog() {
+
+            return spool == null ? 0 : spool.getPendingCount();
+        }
+
+        @Override
+        public int getLeasedConnections() {
+
+            PoolStats stats = poolStats();
+
+            return stats == null ? -1 : stats.getLeased();
+        }
+
+        @Override
+        public int getAvailableConnections() {
+
+            PoolStats stats = poolStats();
+
+            return stats == null ? -1 : stats.getAvailable();
+        }
+
+        @Override
+        public int getPendingConnections() {
+
+            PoolStats stats = poolStats();
+
+            return stats == null ? -1 : stats.getPending();
+        }
+
+        @Override
+        public int getMaxConnections() {
+
+            PoolStats stats = poolStats();
+
+            return stats == null ? -1 : stats.getMax();
+        }
+
+        @Override
+        public int getConcurrencyLimit() {
+
+            return concurrencyLimiter == null ? -1 : concurrencyLimiter.getLimit();
+        }
+
+        @Override
+        public int getInFlightRequests() {
+
+            return concurrencyLimiter == null ? -1 : concurrencyLimiter.getInFlight();
+        }
+
+        private PoolStats poolStats() {
+
+            return ApacheHttpTransport.poolStats(transport);
+        }
+    }
+
+    /**
+     * Asynchronous send of one request, kept apart from a lambda so its payload can still be spooled when the drain
+     * deadline passes before it ran.
+     */
+    private final class Send implements AsyncDispatcher.Job {
+
+        private final URI uri;
+        private final byte[] payload;
+
+        private Send(URI uri, byte[] payload) {
+
+            this.uri = uri;
+            this.payload = payload;
+        }
+
+        @Override
+        public void run() throws Throwable {
+
+            sendInBackground(uri, payload);
         }
+    }
+
+    private static final class WireBody {
+
+        private final byte[] json;
+        private final byte[] bytes;
+        private final String contentType;
+        private final String encoding;
+
+        /**
+         * @param json JSON payload the body was encoded from, to resend it as JSON when the API rejects the format
+         * @param contentType Content type of the body, or {@code null} when it is JSON
+         */
+        private WireBody(byte[] json, byte[] bytes, String contentType, String encoding) {
+
+            this.json = json;
+            this.bytes = bytes;
+            this.contentType = contentType;
+            this.encoding = encoding;
+        }
+    }
+
+    private static final class Outcome {
+
+        private final int statusCode;
+        private final long retryAfterMillis;
 
-        for (JsonNode warningMessageNode : warningsNode) {
+        private Outcome(int statusCode, long retryAfterMillis) {
 
-            LOGGER.warn(warningMessageNode.asText());
+            this.statusCode = statusCode;
+            this.retryAfterMillis = retryAfterMillis;
         }
     }
 }
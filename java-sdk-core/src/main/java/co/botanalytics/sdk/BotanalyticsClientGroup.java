@@ -0,0 +1,289 @@
+package co.botanalytics.sdk;
+
+import co.botanalytics.sdk.exceptions.BotanalyticsConfigurationException;
+import org.apache.http.pool.PoolStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Resources shared by many clients with different tokens, e.g. one per bot agent: the transport and its connection
+ * pool, the dispatcher threads and queue, the batch scheduler and the circuit breaker. Creating a client in a group
+ * allocates no threads or connections, so clients can be created per token on demand.
+ * <pre>
+ * BotanalyticsClientGroup group = new BotanalyticsClientGroup(configuration);
+ *
+ * BotanalyticsRBMClient client = new BotanalyticsRBMClient(agentToken, group);
+ * </pre>
+ * Clients stay isolated where it matters:
+ * <ul>
+ *     <li>Every client batches its own events and {@link BotanalyticsClient#flush()} only waits for them.</li>
+ *     <li>{@link BotanalyticsConfiguration.Builder#maxPendingPerClient(int)} caps how much of the shared queue one
+ *     client may use.</li>
+ *     <li>Authorization errors never open the shared circuit breaker, and a {@code 429} throttles only the token it
+ *     was returned for: its events fail fast until the requested delay elapsed instead of occupying shared threads.</li>
+ * </ul>
+ * Metrics of all clients are reported to the configured {@link MetricsListener}, with gauges for the whole group.
+ * Spooling is not supported, since a spool belongs to a single client. Closing the group closes every client still
+ * open.
+ */
+public final class BotanalyticsClientGroup implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BotanalyticsClientGroup.class);
+
+    private final BotanalyticsConfiguration configuration;
+    private final URI baseUri;
+    private final Transport transport;
+    private final boolean ownsTransport;
+    private final AsyncDispatcher dispatcher;
+    private final ScheduledExecutorService batchScheduler;
+    private final CircuitBreaker circuitBreaker;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final MetricsListener metrics;
+    private final Set<BotanalyticsClient> clients = ConcurrentHashMap.newKeySet();
+    private final Thread shutdownHook;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * @param domain Target Botanalytics API domain
+     * @param version Target Botanalytics API version
+     * @param configuration Options applying to every client of the group
+     * @throws BotanalyticsConfigurationException Thrown when an invalid configuration is provided (e.g domain or version)
+     */
+    public BotanalyticsClientGroup(String domain, int version, BotanalyticsConfiguration configuration) throws BotanalyticsConfigurationException {
+
+        if (domain == null || domain.trim().length() == 0) {
+
+            LOGGER.error("Failed to configure Botanalytics client group due to missing 'domain' field.");
+
+            throw new BotanalyticsConfigurationException("domain");
+        }
+
+        if (configuration == null) {
+
+            LOGGER.error("Failed to configure Botanalytics client group due to missing 'configuration' field.");
+
+            throw new BotanalyticsConfigurationException("configuration");
+        }
+
+        if (configuration.getSpoolDirectory() != null) {
+
+            LOGGER.error("Failed to configure Botanalytics client group due to unsupported 'spoolDirectory' field.");
+
+            throw new BotanalyticsConfigurationException("spoolDirectory", "a spool belongs to a single client");
+        }
+
+        this.configuration = configuration;
+        this.baseUri = BotanalyticsClient.constructBaseURI(configuration.getScheme(), domain, version);
+        this.ownsTransport = configuration.getTransport() == null;
+        this.transport = ownsTransport ? new ApacheHttpTransport(configuration) : configuration.getTransport();
+        this.dispatcher = new AsyncDispatcher(configuration);
+        this.batchScheduler = configuration.isBatchingEnabled() ? EventBatcher.newScheduler() : null;
+        this.circuitBreaker = new CircuitBreaker(configuration.getCircuitBreakerThreshold(), configuration.getCircuitBreakerOpenMillis());
+        this.concurrencyLimiter = BotanalyticsClient.newConcurrencyLimiter(configuration);
+        this.metrics = configuration.getMetricsListener();
+        this.shutdownHook = configuration.isShutdownHook() ? BotanalyticsClient.addShutdownHook(this::close, "botanalytics-group-shutdown") : null;
+
+        metrics.onStart(new Gauges());
+    }
+
+    public BotanalyticsClientGroup(BotanalyticsConfiguration configuration) throws BotanalyticsConfigurationException {
+
+        this(BotanalyticsClient.DEFAULT_DOMAIN, BotanalyticsClient.DEFAULT_VERSION, configuration);
+    }
+
+    public BotanalyticsClientGroup() throws BotanalyticsConfigurationException {
+
+        this(BotanalyticsConfiguration.defaults());
+    }
+
+    public BotanalyticsConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * @return Number of clients created in this group and not closed yet
+     */
+    public int getClientCount() {
+
+        return clients.size();
+    }
+
+    /**
+     * Closes the group within the configured drain timeout, see {@link #close(long, TimeUnit)}.
+     */
+    @Override
+    public void close() {
+
+        close(configuration.getDrainTimeoutMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Closes every open client, sending its events until the shared deadline, then stops the dispatcher threads and
+     * releases the connections. Events still queued at the deadline are dropped. Closing a closed group does nothing.
+     * @param timeout Maximum time to wait for queued events to be sent
+     * @param unit Unit of the timeout
+     * @return {@code true} when every event was sent before the deadline
+     */
+    public boolean close(long timeout, TimeUnit unit) {
+
+        if (!closed.compareAndSet(false, true))
+            return true;
+
+        BotanalyticsClient.removeShutdownHook(shutdownHook);
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean drained = true;
+
+        for (BotanalyticsClient client : new ArrayList<>(clients))
+            drained &= client.close(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+
+        dispatcher.close();
+
+        int abandoned = dispatcher.abandonQueued(job -> false, "Botanalytics client group closed before the event was sent.");
+
+        if (abandoned > 0)
+            LOGGER.warn("Drain timeout elapsed, dropped {} queued requests.", abandoned);
+
+        if (batchScheduler != null)
+            batchScheduler.shutdownNow();
+
+        metrics.onClose();
+
+        if (ownsTransport) {
+
+            try {
+
+                transport.close();
+
+            } catch (IOException e) {
+
+                LOGGER.warn("Failed to close transport.", e);
+            }
+        }
+
+        return drained;
+    }
+
+    URI getBaseUri() {
+
+        return baseUri;
+    }
+
+    Transport getTransport() {
+
+        return transport;
+    }
+
+    AsyncDispatcher getDispatcher() {
+
+        return dispatcher;
+    }
+
+    ScheduledExecutorService getBatchScheduler() {
+
+        return batchScheduler;
+    }
+
+    CircuitBreaker getCircuitBreaker() {
+
+        return circuitBreaker;
+    }
+
+    ConcurrencyLimiter getConcurrencyLimiter() {
+
+        return concurrencyLimiter;
+    }
+
+    void register(BotanalyticsClient client) {
+
+        if (closed.get())
+            throw new IllegalStateException("Botanalytics client group is closed.");
+
+        clients.add(client);
+    }
+
+    void unregister(BotanalyticsClient client) {
+
+        clients.remove(client);
+    }
+
+    private final class Gauges implements ClientGauges {
+
+        @Override
+        public int getQueueDepth() {
+
+            return dispatcher.getQueueDepth();
+        }
+
+        @Override
+        public int getBufferedEvents() {
+
+            int count = 0;
+
+            for (BotanalyticsClient client : clients)
+                count += client.getBufferedEvents();
+
+            return count;
+        }
+
+        @Override
+        public int getSpoolBacklog() {
+
+            return 0;
+        }
+
+        @Override
+        public int getLeasedConnections() {
+
+            PoolStats stats = ApacheHttpTransport.poolStats(transport);
+
+            return stats == null ? -1 : stats.getLeased();
+        }
+
+        @Override
+        public int getAvailableConnections() {
+
+            PoolStats stats = ApacheHttpTransport.poolStats(transport);
+
+            return stats == null ? -1 : stats.getAvailable();
+        }
+
+        @Override
+        public int getPendingConnections() {
+
+            PoolStats stats = ApacheHttpTransport.poolStats(transport);
+
+            return stats == null ? -1 : stats.getPending();
+        }
+
+        @Override
+        public int getMaxConnections() {
+
+            PoolStats stats = ApacheHttpTransport.poolStats(transport);
+
+            return stats == null ? -1 : stats.getMax();
+        }
+
+        @Override
+        public int getConcurrencyLimit() {
+
+            return concurrencyLimiter == null ? -1 : concurrencyLimiter.getLimit();
+        }
+
+        @Override
+        public int getInFlightRequests() {
+
+            return concurrencyLimiter == null ? -1 : concurrencyLimiter.getInFlight();
+        }
+    }
+}
@@ -0,0 +1,813 @@
+package co.botanalytics.sdk;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tuning options for a {@link BotanalyticsClient}. Instances are immutable and created through {@link #builder()}.
+ */
+public final class BotanalyticsConfiguration {
+
+    private static final BotanalyticsConfiguration DEFAULTS = builder().build();
+
+    private final int asyncQueueCapacity;
+    private final int asyncThreads;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutMillis;
+    private final boolean virtualThreads;
+    private final int maxPendingPerClient;
+    private final int batchMaxEvents;
+    private final long batchMaxBytes;
+    private final long batchLingerMillis;
+    private final String scheme;
+    private final int maxConnections;
+    private final int maxConnectionsPerRoute;
+    private final LimitAlgorithm concurrencyLimit;
+    private final long connectTimeoutMillis;
+    private final long socketTimeoutMillis;
+    private final long leaseTimeoutMillis;
+    private final long keepAliveMillis;
+    private final long idleEvictionMillis;
+    private final Transport transport;
+    private final Path spoolDirectory;
+    private final long spoolMaxBytes;
+    private final int spoolSegmentBytes;
+    private final long spoolRetryIntervalMillis;
+    private final boolean spoolFsync;
+    private final RetryPolicy retryPolicy;
+    private final RetryPolicy syncRetryPolicy;
+    private final int circuitBreakerThreshold;
+    private final long circuitBreakerOpenMillis;
+    private final MetricsListener metricsListener;
+    private final CompressionCodec compression;
+    private final int compressionThreshold;
+    private final WireFormat wireFormat;
+    private final boolean checkWarnings;
+    private final long drainTimeoutMillis;
+    private final boolean shutdownHook;
+
+    private BotanalyticsConfiguration(Builder builder) {
+
+        this.asyncQueueCapacity = builder.asyncQueueCapacity;
+        this.asyncThreads = builder.asyncThreads;
+        this.overflowPolicy = builder.overflowPolicy;
+        this.blockTimeoutMillis = builder.blockTimeoutMillis;
+        this.virtualThreads = builder.virtualThreads;
+        this.maxPendingPerClient = builder.maxPendingPerClient;
+        this.batchMaxEvents = builder.batchMaxEvents;
+        this.batchMaxBytes = builder.batchMaxBytes;
+        this.batchLingerMillis = builder.batchLingerMillis;
+        this.scheme = builder.scheme;
+        this.maxConnections = builder.maxConnections;
+        this.maxConnectionsPerRoute = builder.maxConnectionsPerRoute;
+        this.concurrencyLimit = builder.concurrencyLimit;
+        this.connectTimeoutMillis = builder.connectTimeoutMillis;
+        this.socketTimeoutMillis = builder.socketTimeoutMillis;
+        this.leaseTimeoutMillis = builder.leaseTimeoutMillis;
+        this.keepAliveMillis = builder.keepAliveMillis;
+        this.idleEvictionMillis = builder.idleEvictionMillis;
+        this.transport = builder.transport;
+        this.spoolDirectory = builder.spoolDirectory;
+        this.spoolMaxBytes = builder.spoolMaxBytes;
+        this.spoolSegmentBytes = builder.spoolSegmentBytes;
+        this.spoolRetryIntervalMillis = builder.spoolRetryIntervalMillis;
+        this.spoolFsync = builder.spoolFsync;
+        this.retryPolicy = builder.retryPolicy;
+        this.syncRetryPolicy = builder.syncRetryPolicy;
+        this.circuitBreakerThreshold = builder.circuitBreakerThreshold;
+        this.circuitBreakerOpenMillis = builder.circuitBreakerOpenMillis;
+        this.metricsListener = builder.metricsListener;
+        this.compression = builder.compression;
+        this.compressionThreshold = builder.compressionThreshold;
+        this.wireFormat = builder.wireFormat;
+        this.checkWarnings = builder.checkWarnings;
+        this.drainTimeoutMillis = builder.drainTimeoutMillis;
+        this.shutdownHook = builder.shutdownHook;
+    }
+
+    /**
+     * @return Configuration with every option set to its default value
+     */
+    public static BotanalyticsConfiguration defaults() {
+
+        return DEFAULTS;
+    }
+
+    /**
+     * @return A new builder initialized with default values
+     */
+    public static Builder builder() {
+
+        return new Builder();
+    }
+
+    public int getAsyncQueueCapacity() {
+        return asyncQueueCapacity;
+    }
+
+    public int getAsyncThreads() {
+        return asyncThreads;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public long getBlockTimeoutMillis() {
+        return blockTimeoutMillis;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public int getMaxPendingPerClient() {
+        return maxPendingPerClient;
+    }
+
+    public boolean isBatchingEnabled() {
+        return batchMaxEvents > 1;
+    }
+
+    public int getBatchMaxEvents() {
+        return batchMaxEvents;
+    }
+
+    public long getBatchMaxBytes() {
+        return batchMaxBytes;
+    }
+
+    public long getBatchLingerMillis() {
+        return batchLingerMillis;
+    }
+
+    public String getScheme() {
+        return scheme;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    /**
+     * @return Algorithm adapting the number of requests in flight, or {@code null} when only the pool limits it
+     */
+    public LimitAlgorithm getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    public long getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public long getSocketTimeoutMillis() {
+        return socketTimeoutMillis;
+    }
+
+    public long getLeaseTimeoutMillis() {
+        return leaseTimeoutMillis;
+    }
+
+    public long getKeepAliveMillis() {
+        return keepAliveMillis;
+    }
+
+    public long getIdleEvictionMillis() {
+        return idleEvictionMillis;
+    }
+
+    public Transport getTransport() {
+        return transport;
+    }
+
+    public Path getSpoolDirectory() {
+        return spoolDirectory;
+    }
+
+    public long getSpoolMaxBytes() {
+        return spoolMaxBytes;
+    }
+
+    public int getSpoolSegmentBytes() {
+        return spoolSegmentBytes;
+    }
+
+    public long getSpoolRetryIntervalMillis() {
+        return spoolRetryIntervalMillis;
+    }
+
+    public boolean isSpoolFsync() {
+        return spoolFsync;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    public RetryPolicy getSyncRetryPolicy() {
+        return syncRetryPolicy;
+    }
+
+    public int getCircuitBreakerThreshold() {
+        return circuitBreakerThreshold;
+    }
+
+    public long getCircuitBreakerOpenMillis() {
+        return circuitBreakerOpenMillis;
+    }
+
+    public MetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    /**
+     * @return Codec request bodies are compressed with, or {@code null} when compression is off
+     */
+    public CompressionCodec getCompression() {
+        return compression;
+    }
+
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * @return Format request bodies are sent in, or {@code null} when they are sent as JSON
+     */
+    public WireFormat getWireFormat() {
+        return wireFormat;
+    }
+
+    public boolean isCheckWarnings() {
+        return checkWarnings;
+    }
+
+    public long getDrainTimeoutMillis() {
+        return drainTimeoutMillis;
+    }
+
+    public boolean isShutdownHook() {
+        return shutdownHook;
+    }
+
+    public static final class Builder {
+
+        private int asyncQueueCapacity = 1024;
+        private int asyncThreads = 2;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+        private long blockTimeoutMillis = 100;
+        private boolean virtualThreads;
+        private int maxPendingPerClient = Integer.MAX_VALUE;
+        private int batchMaxEvents = 1;
+        private long batchMaxBytes = 1024 * 1024;
+        private long batchLingerMillis = 200;
+        private String scheme = "https";
+        private int maxConnections = 64;
+        private int maxConnectionsPerRoute = 32;
+        private LimitAlgorithm concurrencyLimit;
+        private long connectTimeoutMillis = 5000;
+        private long socketTimeoutMillis = 10000;
+        private long leaseTimeoutMillis = 5000;
+        private long keepAliveMillis = 30000;
+        private long idleEvictionMillis = 60000;
+        private Transport transport;
+        private Path spoolDirectory;
+        private long spoolMaxBytes = 256L * 1024 * 1024;
+        private int spoolSegmentBytes = 16 * 1024 * 1024;
+        private long spoolRetryIntervalMillis = 5000;
+        private boolean spoolFsync;
+        private RetryPolicy retryPolicy = RetryPolicy.defaults();
+        private RetryPolicy syncRetryPolicy = RetryPolicy.none();
+        private int circuitBreakerThreshold = 5;
+        private long circuitBreakerOpenMillis = 30000;
+        private MetricsListener metricsListener = MetricsListener.NONE;
+        private CompressionCodec compression;
+        private int compressionThreshold = 1024;
+        private WireFormat wireFormat;
+        private boolean checkWarnings = true;
+        private long drainTimeoutMillis = 30000;
+        private boolean shutdownHook;
+
+        private Builder() {
+        }
+
+        /**
+         * @param asyncQueueCapacity Maximum number of events waiting to be sent in asynchronous mode
+         * @return This builder
+         */
+        public Builder asyncQueueCapacity(int asyncQueueCapacity) {
+
+            if (asyncQueueCapacity < 1)
+                throw new IllegalArgumentException("asyncQueueCapacity must be positive.");
+
+            this.asyncQueueCapacity = asyncQueueCapacity;
+
+            return this;
+        }
+
+        /**
+         * @param asyncThreads Number of background threads sending events in asynchronous mode
+         * @return This builder
+         */
+        public Builder asyncThreads(int asyncThreads) {
+
+            if (asyncThreads < 1)
+                throw new IllegalArgumentException("asyncThreads must be positive.");
+
+            this.asyncThreads = asyncThreads;
+
+            return this;
+        }
+
+        /**
+         * @param overflowPolicy What to do with an event when the asynchronous queue is full
+         * @return This builder
+         */
+        public Builder overflowPolicy(OverflowPolicy overflowPolicy) {
+
+            if (overflowPolicy == null)
+                throw new IllegalArgumentException("overflowPolicy must not be null.");
+
+            this.overflowPolicy = overflowPolicy;
+
+            return this;
+        }
+
+        /**
+         * @param timeout How long {@link OverflowPolicy#BLOCK} waits for queue space before rejecting an event
+         * @param unit Unit of the timeout
+         * @return This builder
+         */
+        public Builder blockTimeout(long timeout, TimeUnit unit) {
+
+            if (timeout < 0)
+                throw new IllegalArgumentException("blockTimeout must not be negative.");
+
+            this.blockTimeoutMillis = unit.toMillis(timeout);
+
+            return this;
+        }
+
+        /**
+         * Sends asynchronously logged events on virtual threads instead of {@link #asyncThreads(int)} platform
+         * threads. At most {@link #maxConnectionsPerRoute(int)} sends run at once, the rest wait in the queue. Requires
+         * Java 21 at runtime; on older runtimes a warning is logged and platform threads are used.
+         * @param virtualThreads Whether to send on virtual threads
+         * @return This builder
+         */
+        public Builder virtualThreads(boolean virtualThreads) {
+
+            this.virtualThreads = virtualThreads;
+
+            return this;
+        }
+
+        /**
+         * Caps the asynchronously logged events a single client may have queued, batched or in flight. Further events
+         * are rejected with {@link co.botanalytics.sdk.exceptions.BotanalyticsOverflowException}. Mostly useful for the
+         * clients of a {@link BotanalyticsClientGroup}, so one busy token cannot fill the queue they share. Unlimited by
+         * default.
+         * @param maxPendingPerClient Maximum number of pending events per client
+         * @return This builder
+         */
+        public Builder maxPendingPerClient(int maxPendingPerClient) {
+
+            if (maxPendingPerClient < 1)
+                throw new IllegalArgumentException("maxPendingPerClient must be positive.");
+
+            this.maxPendingPerClient = maxPendingPerClient;
+
+            return this;
+        }
+
+        /**
+         * Enables batching of asynchronously logged events. Events are grouped per endpoint and posted as a single JSON
+         * array once the batch holds this many events. A value of 1 (the default) disables batching.
+         * <p>
+         * Batches are posted to the same endpoint as single events, so only enable batching against an API deployment
+         * that accepts an array body there. Otherwise every batch is rejected and, with a spool, acknowledged as
+         * delivered, which loses its events.
+         * @param batchMaxEvents Maximum number of events per batch
+         * @return This builder
+         */
+        public Builder batchMaxEvents(int batchMaxEvents) {
+
+            if (batchMaxEvents < 1)
+                throw new IllegalArgumentException("batchMaxEvents must be positive.");
+
+            this.batchMaxEvents = batchMaxEvents;
+
+            return this;
+        }
+
+        /**
+         * @param batchMaxBytes Maximum encoded size of a batch before it is sent
+         * @return This builder
+         */
+        public Builder batchMaxBytes(long batchMaxBytes) {
+
+            if (batchMaxBytes < 1)
+                throw new IllegalArgumentException("batchMaxBytes must be positive.");
+
+            this.batchMaxBytes = batchMaxBytes;
+
+            return this;
+        }
+
+        /**
+         * @param linger How long a batch may wait for more events before it is sent
+         * @param unit Unit of the linger time
+         * @return This builder
+         */
+        public Builder batchLinger(long linger, TimeUnit unit) {
+
+            if (linger < 0)
+                throw new IllegalArgumentException("batchLinger must not be negative.");
+
+            this.batchLingerMillis = unit.toMillis(linger);
+
+            return this;
+        }
+
+        /**
+         * @param scheme URI scheme used to reach the Botanalytics API, either {@code https} (default) or {@code http}
+         * @return This builder
+         */
+        public Builder scheme(String scheme) {
+
+            if (!"https".equals(scheme) && !"http".equals(scheme))
+                throw new IllegalArgumentException("scheme must be either 'http' or 'https'.");
+
+            this.scheme = scheme;
+
+            return this;
+        }
+
+        /**
+         * @param maxConnections Maximum number of pooled HTTP connections
+         * @return This builder
+         */
+        public Builder maxConnections(int maxConnections) {
+
+            if (maxConnections < 1)
+                throw new IllegalArgumentException("maxConnections must be positive.");
+
+            this.maxConnections = maxConnections;
+
+            return this;
+        }
+
+        /**
+         * @param maxConnectionsPerRoute Maximum number of pooled HTTP connections to a single host
+         * @return This builder
+         */
+        public Builder maxConnectionsPerRoute(int maxConnectionsPerRoute) {
+
+            if (maxConnectionsPerRoute < 1)
+                throw new IllegalArgumentException("maxConnectionsPerRoute must be positive.");
+
+            this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+
+            return this;
+        }
+
+        /**
+         * Adapts the number of requests in flight to the latency and errors observed from the API, starting at half of
+         * {@link #maxConnectionsPerRoute(int)} and never exceeding it. Sends beyond the limit wait for a permit on their
+         * thread. In a group the limit is shared by all clients.
+         * @param concurrencyLimit Algorithm moving the limit, or {@code null} to let only the pool limit concurrency
+         * @return This builder
+         */
+        public Builder concurrencyLimit(LimitAlgorithm concurrencyLimit) {
+
+            this.concurrencyLimit = concurrencyLimit;
+
+            return this;
+        }
+
+        /**
+         * @param timeout How long to wait for a TCP/TLS connection to be established
+         * @param unit Unit of the timeout
+         * @return This builder
+         */
+        public Builder connectTimeout(long timeout, TimeUnit unit) {
+
+            this.connectTimeoutMillis = toTimeoutMillis("connectTimeout", timeout, unit);
+
+            return this;
+        }
+
+        /**
+         * @param timeout Maximum period of inactivity while waiting for response data
+         * @param unit Unit of the timeout
+         * @return This builder
+         */
+        public Builder socketTimeout(long timeout, TimeUnit unit) {
+
+            this.socketTimeoutMillis = toTimeoutMillis("socketTimeout", timeout, unit);
+
+            return this;
+        }
+
+        /**
+         * @param timeout How long to wait for a connection to be leased from the pool
+         * @param unit Unit of the timeout
+         * @return This builder
+         */
+        public Builder leaseTimeout(long timeout, TimeUnit unit) {
+
+            this.leaseTimeoutMillis = toTimeoutMillis("leaseTimeout", timeout, unit);
+
+            return this;
+        }
+
+        /**
+         * Connections are kept alive for the duration announced in the server's {@code Keep-Alive} header, capped at
+         * this value, or for exactly this value when the server does not announce one.
+         * @param keepAlive Maximum time an idle connection is kept for reuse
+         * @param unit Unit of the keep-alive time
+         * @return This builder
+         */
+        public Builder keepAlive(long keepAlive, TimeUnit unit) {
+
+            this.keepAliveMillis = toTimeoutMillis("keepAlive", keepAlive, unit);
+
+            return this;
+        }
+
+        /**
+         * @param idleTime How long a pooled connection may sit idle before a background thread closes it
+         * @param unit Unit of the idle time
+         * @return This builder
+         */
+        public Builder idleEviction(long idleTime, TimeUnit unit) {
+
+            this.idleEvictionMillis = toTimeoutMillis("idleEviction", idleTime, unit);
+
+            if (idleEvictionMillis == 0)
+                throw new IllegalArgumentException("idleEviction must be positive.");
+
+            return this;
+        }
+
+        /**
+         * Replaces the default {@link ApacheHttpTransport}. The connection pool and timeout options above only apply
+         * to the default transport. A transport supplied here is not closed by the client.
+         * @param transport Transport used to reach the Botanalytics API
+         * @return This builder
+         */
+        public Builder transport(Transport transport) {
+
+            this.transport = transport;
+
+            return this;
+        }
+
+        /**
+         * Enables the on-disk spool. Every event is written to a memory-mapped segment file in this directory before it
+         * is sent, and stays there until the API accepted it. Undelivered events are redelivered in order in the
+         * background and after a restart. The directory must not be shared between clients.
+         * @param spoolDirectory Directory holding the spool segments
+         * @return This builder
+         */
+        public Builder spoolDirectory(Path spoolDirectory) {
+
+            this.spoolDirectory = spoolDirectory;
+
+            return this;
+        }
+
+        /**
+         * Segments are memory-mapped for as long as they hold undelivered events, so the spool also reserves up to this
+         * much virtual address space. Segments are unmapped as soon as they are deleted.
+         * @param spoolMaxBytes Disk space the spool may use before the oldest undelivered events are dropped
+         * @return This builder
+         */
+        public Builder spoolMaxBytes(long spoolMaxBytes) {
+
+            if (spoolMaxBytes < 1)
+                throw new IllegalArgumentException("spoolMaxBytes must be positive.");
+
+            this.spoolMaxBytes = spoolMaxBytes;
+
+            return this;
+        }
+
+        /**
+         * @param spoolSegmentBytes Size of a single spool segment file, which also bounds the size of a spooled event
+         * @return This builder
+         */
+        public Builder spoolSegmentBytes(int spoolSegmentBytes) {
+
+            if (spoolSegmentBytes < 1024)
+                throw new IllegalArgumentException("spoolSegmentBytes must be at least 1024.");
+
+            this.spoolSegmentBytes = spoolSegmentBytes;
+
+            return this;
+        }
+
+        /**
+         * @param interval Pause between redelivery attempts while the API is unreachable
+         * @param unit Unit of the interval
+         * @return This builder
+         */
+        public Builder spoolRetryInterval(long interval, TimeUnit unit) {
+
+            if (interval < 0)
+                throw new IllegalArgumentException("spoolRetryInterval must not be negative.");
+
+            this.spoolRetryIntervalMillis = unit.toMillis(interval);
+
+            return this;
+        }
+
+        /**
+         * @param spoolFsync Whether every spooled event is forced to disk before it is sent. Without it events survive
+         *                   process crashes but not operating system crashes.
+         * @return This builder
+         */
+        public Builder spoolFsync(boolean spoolFsync) {
+
+            this.spoolFsync = spoolFsync;
+
+            return this;
+        }
+
+        /**
+         * @param retryPolicy How requests sent in the background (asynchronous sends, batches and backfills) that fail
+         *                    with a network error, {@code 429} or {@code 5xx} are retried, {@link RetryPolicy#none()}
+         *                    to disable retries
+         * @return This builder
+         */
+        public Builder retryPolicy(RetryPolicy retryPolicy) {
+
+            if (retryPolicy == null)
+                throw new IllegalArgumentException("retryPolicy must not be null.");
+
+            this.retryPolicy = retryPolicy;
+
+            return this;
+        }
+
+        /**
+         * Retries of synchronous sends sleep on the caller's thread, so by default they make a single attempt and leave
+         * long backoff to the asynchronous dispatcher and the spool. With retries the caller blocks for up to
+         * {@code (maxAttempts - 1)} times the larger of {@code maxDelay} and {@code maxRetryAfter}, plus the socket
+         * timeout of every attempt: over two minutes with {@link RetryPolicy#defaults()}.
+         * @param syncRetryPolicy How synchronous sends failing with a network error, {@code 429} or {@code 5xx} are
+         *                        retried, {@link RetryPolicy#none()} by default
+         * @return This builder
+         */
+        public Builder syncRetryPolicy(RetryPolicy syncRetryPolicy) {
+
+            if (syncRetryPolicy == null)
+                throw new IllegalArgumentException("syncRetryPolicy must not be null.");
+
+            this.syncRetryPolicy = syncRetryPolicy;
+
+            return this;
+        }
+
+        /**
+         * @param circuitBreakerThreshold Consecutive failed attempts after which requests fail fast (or go straight to
+         *                                the spool) for the open duration, 0 to disable the circuit breaker
+         * @return This builder
+         */
+        public Builder circuitBreakerThreshold(int circuitBreakerThreshold) {
+
+            if (circuitBreakerThreshold < 0)
+                throw new IllegalArgumentException("circuitBreakerThreshold must not be negative.");
+
+            this.circuitBreakerThreshold = circuitBreakerThreshold;
+
+            return this;
+        }
+
+        /**
+         * @param duration How long the circuit stays open before a probe request is let through
+         * @param unit Unit of the duration
+         * @return This builder
+         */
+        public Builder circuitBreakerOpenDuration(long duration, TimeUnit unit) {
+
+            if (duration < 0)
+                throw new IllegalArgumentException("circuitBreakerOpenDuration must not be negative.");
+
+            this.circuitBreakerOpenMillis = unit.toMillis(duration);
+
+            return this;
+        }
+
+        /**
+         * @param metricsListener Receives the client's metrics, e.g. {@link JmxMetricsListener}
+         * @return This builder
+         */
+        public Builder metricsListener(MetricsListener metricsListener) {
+
+            if (metricsListener == null)
+                throw new IllegalArgumentException("metricsListener must not be null.");
+
+            this.metricsListener = metricsListener;
+
+            return this;
+        }
+
+        /**
+         * @param compression Codec to compress request bodies with, e.g. {@link GzipCodec}, or {@code null} to send them
+         *                    uncompressed
+         * @return This builder
+         */
+        public Builder compression(CompressionCodec compression) {
+
+            this.compression = compression;
+
+            return this;
+        }
+
+        /**
+         * @param compressionThreshold Size in bytes below which request bodies are sent uncompressed, since small
+         *                             bodies barely shrink
+         * @return This builder
+         */
+        public Builder compressionThreshold(int compressionThreshold) {
+
+            if (compressionThreshold < 0)
+                throw new IllegalArgumentException("compressionThreshold must not be negative.");
+
+            this.compressionThreshold = compressionThreshold;
+
+            return this;
+        }
+
+        /**
+         * @param wireFormat Format to send request bodies in, e.g. {@link JacksonWireFormat#cbor()}, or {@code null} to
+         *                   send them as JSON. The client falls back to JSON when the API does not accept the format.
+         * @return This builder
+         */
+        public Builder wireFormat(WireFormat wireFormat) {
+
+            this.wireFormat = wireFormat;
+
+            return this;
+        }
+
+        /**
+         * @param checkWarnings Whether successful responses are read for API warnings, which are logged. Disable it for
+         *                      fire-and-forget traffic to discard response bodies unread; error responses are still
+         *                      read. Enabled by default.
+         * @return This builder
+         */
+        public Builder checkWarnings(boolean checkWarnings) {
+
+            this.checkWarnings = checkWarnings;
+
+            return this;
+        }
+
+        /**
+         * @param timeout How long {@link BotanalyticsClient#close()} waits for queued events to be sent before it writes
+         *                the rest to the spool, or drops them without one. Keep it below the termination grace period
+         *                of the platform, e.g. 30 seconds on Kubernetes.
+         * @param unit Unit of the timeout
+         * @return This builder
+         */
+        public Builder drainTimeout(long timeout, TimeUnit unit) {
+
+            this.drainTimeoutMillis = toTimeoutMillis("drainTimeout", timeout, unit);
+
+            return this;
+        }
+
+        /**
+         * @param shutdownHook Whether the client, or the group, closes itself when the JVM shuts down, e.g. on
+         *                     {@code SIGTERM}, so queued events are drained within the drain timeout
+         * @return This builder
+         */
+        public Builder shutdownHook(boolean shutdownHook) {
+
+            this.shutdownHook = shutdownHook;
+
+            return this;
+        }
+
+        private static long toTimeoutMillis(String name, long value, TimeUnit unit) {
+
+            long millis = unit.toMillis(value);
+
+            if (millis < 0 || millis > Integer.MAX_VALUE)
+                throw new IllegalArgumentException(name + " must be between 0 and " + Integer.MAX_VALUE + " milliseconds.");
+
+            return millis;
+        }
+
+        public BotanalyticsConfiguration build() {
+
+            return new BotanalyticsConfiguration(this);
+        }
+    }
+}
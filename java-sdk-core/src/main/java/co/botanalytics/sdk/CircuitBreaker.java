@@ -0,0 +1,141 @@
+package co.botanalytics.sdk;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Consecutive-failure circuit breaker. After {@code failureThreshold} failed attempts in a row the circuit opens and
+ * requests fail fast for {@code openMillis}. The first request after that is let through as a probe: its success
+ * closes the circuit, its failure opens it again. A threshold of zero disables the breaker.
+ * <p>
+ * Guarded by a {@link ReentrantLock} rather than {@code synchronized}, and logs outside of it, so virtual threads
+ * never park while pinned to their carrier.
+ */
+class CircuitBreaker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+
+    CircuitBreaker(int failureThreshold, long openMillis) {
+
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openMillis * 1000000L;
+    }
+
+    /**
+     * @return {@code true} when a request may be sent now. Every granted request must be followed by a call to
+     * {@link #onSuccess()} or {@link #onFailure()}.
+     */
+    boolean tryAcquire() {
+
+        if (failureThreshold == 0)
+            return true;
+
+        lock.lock();
+
+        try {
+
+            switch (state) {
+
+                case CLOSED:
+
+                    return true;
+
+                case OPEN:
+
+                    if (System.nanoTime() - openedAt < openNanos)
+                        return false;
+
+                    state = State.HALF_OPEN;
+
+                    return true;
+
+                default:
+
+                    return false;
+            }
+
+        } finally {
+
+            lock.unlock();
+        }
+    }
+
+    void onSuccess() {
+
+        State previous;
+
+        lock.lock();
+
+        try {
+
+            previous = state;
+            consecutiveFailures = 0;
+            state = State.CLOSED;
+
+        } finally {
+
+            lock.unlock();
+        }
+
+        if (previous != State.CLOSED)
+            LOGGER.info("Botanalytics API is reachable again, closing circuit breaker.");
+    }
+
+    void onFailure() {
+
+        if (failureThreshold == 0)
+            return;
+
+        int opened = 0;
+
+        lock.lock();
+
+        try {
+
+            consecutiveFailures++;
+
+            if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+
+                if (state == State.CLOSED)
+                    opened = consecutiveFailures;
+
+                state = State.OPEN;
+                openedAt = System.nanoTime();
+            }
+
+        } finally {
+
+            lock.unlock();
+        }
+
+        if (opened > 0)
+            LOGGER.warn("Opening circuit breaker after {} consecutive failed requests to Botanalytics API.", opened);
+    }
+
+    State getState() {
+
+        lock.lock();
+
+        try {
+
+            return state;
+
+        } finally {
+
+            lock.unlock();
+        }
+    }
+}
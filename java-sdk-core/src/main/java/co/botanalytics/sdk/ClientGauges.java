@@ -0,0 +1,59 @@
+package co.botanalytics.sdk;
+
+/**
+ * Point-in-time readings of a {@link BotanalyticsClient}'s buffers and connection pool, handed to
+ * {@link MetricsListener#onStart(ClientGauges)}. Every call reads the current value.
+ */
+public interface ClientGauges {
+
+    /**
+     * @return Events waiting in the asynchronous dispatch queue
+     */
+    int getQueueDepth();
+
+    /**
+     * @return Events held by the batcher that were not handed to the dispatcher yet, 0 when batching is off
+     */
+    int getBufferedEvents();
+
+    /**
+     * @return Events in the disk spool that were not delivered yet, 0 when no spool is configured
+     */
+    int getSpoolBacklog();
+
+    /**
+     * @return Connections currently leased from the pool, -1 when the transport does not pool connections
+     */
+    int getLeasedConnections();
+
+    /**
+     * @return Idle connections kept in the pool, -1 when the transport does not pool connections
+     */
+    int getAvailableConnections();
+
+    /**
+     * @return Requests waiting for a connection, -1 when the transport does not pool connections
+     */
+    int getPendingConnections();
+
+    /**
+     * @return Maximum size of the pool, -1 when the transport does not pool connections
+     */
+    int getMaxConnections();
+
+    /**
+     * @return Current limit of requests in flight set by the adaptive concurrency limiter, -1 when it is off
+     */
+    default int getConcurrencyLimit() {
+
+        return -1;
+    }
+
+    /**
+     * @return Requests holding a permit of the adaptive concurrency limiter, -1 when it is off
+     */
+    default int getInFlightRequests() {
+
+        return -1;
+    }
+}
@@ -0,0 +1,101 @@
+package co.botanalytics.sdk;
+
+/**
+ * Snapshot of a client's backlog and connectivity for health and readiness probes, see
+ * {@link BotanalyticsClient#getHealth()}.
+ * <p>
+ * Analytics should rarely decide whether a bot is ready: {@link #isReady()} only turns {@code false} while the client
+ * is closed or its dispatch queue is filling up, so events logged asynchronously would soon be dropped or block.
+ * {@link #isConnected()} reports whether the Botanalytics API is reachable, for dashboards and alerts rather than for
+ * taking pods out of rotation.
+ */
+public final class ClientHealth {
+
+    private final boolean closed;
+    private final boolean busy;
+    private final boolean circuitOpen;
+    private final boolean throttled;
+    private final int queueDepth;
+    private final int pendingEvents;
+    private final int bufferedEvents;
+    private final int spoolBacklog;
+    private final long lastContactMillis;
+
+    ClientHealth(boolean closed, boolean busy, boolean circuitOpen, boolean throttled, int queueDepth, int pendingEvents, int bufferedEvents, int spoolBacklog, long lastContactMillis) {
+
+        this.closed = closed;
+        this.busy = busy;
+        this.circuitOpen = circuitOpen;
+        this.throttled = throttled;
+        this.queueDepth = queueDepth;
+        this.pendingEvents = pendingEvents;
+        this.bufferedEvents = bufferedEvents;
+        this.spoolBacklog = spoolBacklog;
+        this.lastContactMillis = lastContactMillis;
+    }
+
+    /**
+     * @return {@code true} while the client is open and its dispatch queue is at most half full
+     */
+    public boolean isReady() {
+        return !closed && !busy;
+    }
+
+    /**
+     * @return {@code false} while the circuit breaker is open or the API throttles the token
+     */
+    public boolean isConnected() {
+        return !circuitOpen && !throttled;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public boolean isCircuitOpen() {
+        return circuitOpen;
+    }
+
+    public boolean isThrottled() {
+        return throttled;
+    }
+
+    /**
+     * @return Tasks waiting in the dispatch queue, shared with the other clients of a group
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * @return Events logged asynchronously by this client that were neither delivered nor dropped yet
+     */
+    public int getPendingEvents() {
+        return pendingEvents;
+    }
+
+    public int getBufferedEvents() {
+        return bufferedEvents;
+    }
+
+    public int getSpoolBacklog() {
+        return spoolBacklog;
+    }
+
+    /**
+     * @return Wall-clock time in milliseconds of the last response proving the API reachable, or {@code -1} before the
+     * first one
+     */
+    public long getLastContactMillis() {
+        return lastContactMillis;
+    }
+
+    @Override
+    public String toString() {
+
+        return "ClientHealth{ready=" + isReady() + ", connected=" + isConnected() + ", closed=" + closed
+                + ", circuitOpen=" + circuitOpen + ", throttled=" + throttled + ", queueDepth=" + queueDepth
+                + ", pendingEvents=" + pendingEvents + ", bufferedEvents=" + bufferedEvents
+                + ", spoolBacklog=" + spoolBacklog + ", lastContactMillis=" + lastContactMillis + "}";
+    }
+}
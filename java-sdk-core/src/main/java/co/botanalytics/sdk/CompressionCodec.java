@@ -0,0 +1,23 @@
+package co.botanalytics.sdk;
+
+import java.io.IOException;
+
+/**
+ * Compresses request bodies before they are sent. The client applies the codec once per request, so a batch of events
+ * is compressed as a whole, and retries reuse the compressed bytes. Implement this interface to plug in another
+ * algorithm, e.g. zstd, supported by the API.
+ */
+public interface CompressionCodec {
+
+    /**
+     * @return Value of the {@code Content-Encoding} header for bodies produced by this codec, e.g. {@code gzip}
+     */
+    String getEncoding();
+
+    /**
+     * @param body Uncompressed request body
+     * @return Compressed request body
+     * @throws IOException Thrown when the body can not be compressed, the request is then sent uncompressed
+     */
+    byte[] compress(byte[] body) throws IOException;
+}
@@ -0,0 +1,177 @@
+package co.botanalytics.sdk;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Adaptive cap on the requests in flight to the API, see {@link LimitAlgorithm}. Every attempt takes a permit with
+ * {@link #acquire()} and hands it back with {@link #release(long, boolean)}, which feeds the round trip time and
+ * whether the attempt was dropped into the algorithm. The limit only grows while at least half of it is in use, so an
+ * idle client does not drift to the maximum.
+ * <p>
+ * Guarded by a {@link ReentrantLock} rather than {@code synchronized}, so virtual threads waiting for a permit never
+ * park while pinned to their carrier.
+ */
+class ConcurrencyLimiter {
+
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final double RTT_TOLERANCE = 1.5;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double LONG_RTT_SMOOTHING = 0.01;
+    private static final double LIMIT_SMOOTHING = 0.2;
+    private static final double RECOVERY_RATIO = 0.95;
+
+    private final LimitAlgorithm algorithm;
+    private final int maxLimit;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private double limit;
+    private int inFlight;
+    private double longRttNanos;
+
+    ConcurrencyLimiter(LimitAlgorithm algorithm, int maxLimit) {
+
+        this.algorithm = algorithm;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(1, maxLimit / 2);
+    }
+
+    /**
+     * Waits until fewer requests than the limit are in flight.
+     * @return Start time of the attempt, to be passed to {@link #release(long, boolean)}
+     */
+    long acquire() throws InterruptedException {
+
+        lock.lock();
+
+        try {
+
+            while (inFlight >= (int) limit)
+                available.await();
+
+            inFlight++;
+
+        } finally {
+
+            lock.unlock();
+        }
+
+        return System.nanoTime();
+    }
+
+    /**
+     * Returns a permit without a sample, for attempts that were never sent.
+     */
+    void cancel() {
+
+        lock.lock();
+
+        try {
+
+            inFlight--;
+
+            available.signal();
+
+        } finally {
+
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param start Value returned by {@link #acquire()}
+     * @param dropped Whether the attempt failed in a way hinting at an overloaded API
+     */
+    void release(long start, boolean dropped) {
+
+        long rttNanos = System.nanoTime() - start;
+
+        lock.lock();
+
+        try {
+
+            int previous = (int) limit;
+            boolean saturated = inFlight * 2 >= limit;
+
+            inFlight--;
+
+            if (dropped) {
+
+                limit = Math.max(1, limit * BACKOFF_RATIO);
+
+            } else if (algorithm == LimitAlgorithm.AIMD) {
+
+                if (saturated)
+                    limit = Math.min(maxLimit, limit + 1 / limit);
+
+            } else {
+
+                onRtt(Math.max(1, rttNanos), saturated);
+            }
+
+            if ((int) limit > previous) {
+
+                available.signalAll();
+
+            } else {
+
+                available.signal();
+            }
+
+        } finally {
+
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves the limit towards its product with the ratio of the long-term to the current round trip time. Within the
+     * tolerance the ratio counts as one and the target adds the square root of the limit as headroom; beyond it the
+     * target shrinks in proportion to the slowdown, down to half the limit.
+     */
+    private void onRtt(long rttNanos, boolean saturated) {
+
+        longRttNanos = longRttNanos == 0 ? rttNanos : longRttNanos + (rttNanos - longRttNanos) * LONG_RTT_SMOOTHING;
+
+        // Forget a slowdown that is over faster than the average would, so the next one is noticed.
+        if (longRttNanos > 2 * rttNanos)
+            longRttNanos *= RECOVERY_RATIO;
+
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1, RTT_TOLERANCE * longRttNanos / rttNanos));
+
+        if (gradient == 1 && !saturated)
+            return;
+
+        double target = limit * gradient + (gradient == 1 ? Math.sqrt(limit) : 0);
+
+        limit = Math.max(1, Math.min(maxLimit, limit * (1 - LIMIT_SMOOTHING) + target * LIMIT_SMOOTHING));
+    }
+
+    int getLimit() {
+
+        lock.lock();
+
+        try {
+
+            return (int) limit;
+
+        } finally {
+
+            lock.unlock();
+        }
+    }
+
+    int getInFlight() {
+
+        lock.lock();
+
+        try {
+
+            return inFlight;
+
+        } finally {
+
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,594 @@
+package co.botanalytics.sdk;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, segmented write-ahead log of events that have not been delivered yet.
+ * <p>
+ * Every segment is a fixed-size memory-mapped file holding a sequence of records:
+ * <pre>
+ * int length | int crc32 | byte state | body (UTF uri, UTF token fingerprint, payload bytes)
+ * </pre>
+ * A zero length marks the end of the written part of a segment. Acknowledging a record flips its state byte in place,
+ * so delivery costs no extra file system calls. Segments whose records are all acknowledged are deleted, and once the
+ * spool exceeds its size limit the oldest segment is evicted together with its undelivered records.
+ * <p>
+ * A spool belongs to the client of one token. Records only carry a fingerprint of it, and files are created readable
+ * by their owner only where the file system supports POSIX permissions. Records of another token found on recovery
+ * are left alone until evicted. Every live segment stays mapped, so the spool takes up to its size limit of address
+ * space; deleted segments are unmapped right away.
+ */
+class DiskSpool implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DiskSpool.class);
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_BYTES = 9;
+    private static final byte STATE_PENDING = 1;
+    private static final byte STATE_ACKNOWLEDGED = 2;
+    private static final Set<StandardOpenOption> SEGMENT_OPTIONS = EnumSet.of(StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    private static final Set<StandardOpenOption> LOCK_OPTIONS = EnumSet.of(StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+
+    private final Path directory;
+    private final String token;
+    private final String fingerprint;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final boolean fsync;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final List<Entry> recovered = new ArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final FileChannel lockChannel;
+    private final FileLock fileLock;
+    private int foreignRecords;
+    private boolean closed;
+
+    /**
+     * @param token Token of the client owning the spool
+     */
+    DiskSpool(Path directory, String token, int segmentBytes, long maxBytes, boolean fsync) throws IOException {
+
+        this.directory = directory;
+        this.token = token;
+        this.fingerprint = fingerprint(token);
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = (int) Math.max(2, maxBytes / segmentBytes);
+        this.fsync = fsync;
+
+        if (Files.notExists(directory))
+            Files.createDirectories(directory, ownerOnly("rwx------"));
+
+        this.lockChannel = FileChannel.open(directory.resolve("spool.lock"), LOCK_OPTIONS, ownerOnly("rw-------"));
+        this.fileLock = lockChannel.tryLock();
+
+        if (fileLock == null) {
+
+            lockChannel.close();
+
+            throw new IOException("Spool directory " + directory + " is already in use by another process.");
+        }
+
+        recover();
+
+        if (foreignRecords > 0)
+            LOGGER.warn("Spool {} holds {} undelivered events of another token, keeping them until they are evicted.", directory, foreignRecords);
+    }
+
+    /**
+     * @return Records that were written but not acknowledged before the spool was last closed, oldest first
+     */
+    List<Entry> getRecoveredEntries() {
+
+        return recovered;
+    }
+
+    /**
+     * Writes a record for the event.
+     * @return Handle to acknowledge the record with, or {@code null} when the event is larger than a segment
+     */
+    Entry append(URI uri, byte[] payload) throws IOException {
+
+        byte[] body = encode(uri, fingerprint, payload);
+        int recordBytes = HEADER_BYTES + body.length;
+
+        // Keep room for the terminating zero length after the record.
+        if (recordBytes + 4 > segmentBytes)
+            return null;
+
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+
+        lock.lock();
+
+        try {
+
+            if (closed)
+                throw new IOException("Spool is closed.");
+
+            Segment segment = segments.peekLast();
+
+            if (segment == null || segment.writePosition + recordBytes + 4 > segmentBytes)
+                segment = rollSegment();
+
+            int offset = segment.writePosition;
+            MappedByteBuffer buffer = segment.buffer;
+
+            // Called through the Java 8 types: the covariant overrides added in Java 9 do not exist there.
+            ByteBuffer target = ((ByteBuffer) buffer).duplicate();
+            ((Buffer) target).position(offset + HEADER_BYTES);
+            target.put(body);
+
+            buffer.put(offset + 8, STATE_PENDING);
+            buffer.putInt(offset + 4, (int) crc.getValue());
+            buffer.putInt(offset, body.length);
+
+            if (fsync)
+                buffer.force();
+
+            segment.writePosition += recordBytes;
+            segment.live++;
+
+            return new Entry(segment, offset, body.length);
+
+        } finally {
+
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks the record as delivered. Deletes its segment once nothing in it is pending anymore.
+     */
+    void acknowledge(Entry entry) {
+
+        lock.lock();
+
+        try {
+
+            Segment segment = entry.segment;
+
+            if (closed || segment.deleted || segment.buffer.get(entry.offset + 8) != STATE_PENDING)
+                return;
+
+            segment.buffer.put(entry.offset + 8, STATE_ACKNOWLEDGED);
+            segment.live--;
+
+            if (segment.isEmpty() && segment != segments.peekLast()) {
+
+                segments.remove(segment);
+                delete(segment);
+            }
+
+        } finally {
+
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return {@code false} when the record was evicted to keep the spool within its size limit
+     */
+    boolean isAvailable(Entry entry) {
+
+        return !entry.segment.deleted;
+    }
+
+    Record read(Entry entry) throws IOException {
+
+        byte[] body = new byte[entry.length];
+
+        lock.lock();
+
+        try {
+
+            if (closed || entry.segment.deleted)
+                throw new IOException("Spool segment was evicted.");
+
+            copy(entry.segment.buffer, entry.offset + HEADER_BYTES, body);
+
+        } finally {
+
+            lock.unlock();
+        }
+
+        return decode(body, token);
+    }
+
+    int getPendingCount() {
+
+        int pending = 0;
+
+        lock.lock();
+
+        try {
+
+            for (Segment segment : segments)
+                pending += segment.live;
+
+        } finally {
+
+            lock.unlock();
+        }
+
+        return pending;
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        lock.lock();
+
+        try {
+
+            if (closed)
+                return;
+
+            closed = true;
+
+            for (Segment segment : segments) {
+
+                segment.buffer.force();
+
+                unmap(segment.buffer);
+            }
+
+            fileLock.release();
+            lockChannel.close();
+
+        } finally {
+
+            lock.unlock();
+        }
+    }
+
+    private void recover() throws IOException {
+
+        List<Path> paths = new ArrayList<>();
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+
+            for (Path path : stream)
+                paths.add(path);
+        }
+
+        paths.sort(null);
+
+        for (int i = 0; i < paths.size(); i++) {
+
+            Path path = paths.get(i);
+            String name = path.getFileName().toString();
+            long index = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            Segment segment = new Segment(index, path, map(path));
+
+            scan(segment);
+
+
+            if (segment.isEmpty() && i < paths.size() - 1) {
+
+                delete(segment);
+
+            } else {
+
+                segments.addLast(segment);
+            }
+        }
+
+        if (!recovered.isEmpty())
+            LOGGER.info("Recovered {} undelivered events from spool {}.", recovered.size(), directory);
+    }
+
+    private void scan(Segment segment) {
+
+        MappedByteBuffer buffer = segment.buffer;
+        int offset = 0;
+
+        while (offset + HEADER_BYTES <= segmentBytes) {
+
+            int length = buffer.getInt(offset);
+
+            if (length <= 0 || offset + HEADER_BYTES + length > segmentBytes)
+                break;
+
+            byte[] body = new byte[length];
+
+            copy(buffer, offset + HEADER_BYTES, body);
+
+            CRC32 crc = new CRC32();
+            crc.update(body, 0, length);
+
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+
+                LOGGER.warn("Discarding torn record at offset {} of spool segment {}.", offset, segment.path);
+
+                break;
+            }
+
+            if (buffer.get(offset + 8) == STATE_PENDING) {
+
+                if (isOwn(body)) {
+
+                    segment.live++;
+                    recovered.add(new Entry(segment, offset, length));
+
+                } else {
+
+                    segment.foreign++;
+                    foreignRecords++;
+                }
+            }
+
+            offset += HEADER_BYTES + length;
+        }
+
+        if (offset + 4 <= segmentBytes)
+            buffer.putInt(offset, 0);
+
+        segment.writePosition = offset;
+    }
+
+    private Segment rollSegment() throws IOException {
+
+        Segment last = segments.peekLast();
+        long index = last == null ? 0 : last.index + 1;
+
+        if (last != null && last.isEmpty()) {
+
+            segments.removeLast();
+            delete(last);
+        }
+
+        while (segments.size() >= maxSegments) {
+
+            Segment evicted = segments.removeFirst();
+
+            LOGGER.warn("Spool size limit reached, dropping {} undelivered events from segment {}.", evicted.live + evicted.foreign, evicted.path);
+
+            delete(evicted);
+        }
+
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+        Segment segment = new Segment(index, path, map(path));
+
+        segments.addLast(segment);
+
+        return segment;
+    }
+
+    private MappedByteBuffer map(Path path) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(path, SEGMENT_OPTIONS, ownerOnly("rw-------"))) {
+
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+    }
+
+    private void delete(Segment segment) {
+
+        segment.deleted = true;
+
+        unmap(segment.buffer);
+
+        try {
+
+            Files.deleteIfExists(segment.path);
+
+        } catch (IOException e) {
+
+            LOGGER.warn("Failed to delete spool segment {}.", segment.path, e);
+        }
+    }
+
+    private static void copy(ByteBuffer buffer, int offset, byte[] target) {
+
+        ByteBuffer source = buffer.duplicate();
+        ((Buffer) source).position(offset);
+        source.get(target);
+    }
+
+    private static byte[] encode(URI uri, String fingerprint, byte[] payload) throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length + 128);
+
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+
+            out.writeUTF(uri.toString());
+            out.writeUTF(fingerprint);
+            out.write(payload);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private static Record decode(byte[] body, String token) throws IOException {
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(body))) {
+
+            URI uri = URI.create(in.readUTF());
+
+            in.readUTF();
+
+            byte[] payload = new byte[in.available()];
+
+            in.readFully(payload);
+
+            return new Record(uri, token, payload);
+        }
+    }
+
+    /**
+     * @return {@code true} when the record was written for this spool's token, by fingerprint or, for records of
+     * earlier versions, in plain text
+     */
+    private boolean isOwn(byte[] body) {
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(body))) {
+
+            in.readUTF();
+
+            String owner = in.readUTF();
+
+            return owner.equals(fingerprint) || owner.equals(token);
+
+        } catch (IOException e) {
+
+            return false;
+        }
+    }
+
+    /**
+     * @return First 16 bytes of the token's SHA-256 digest, hex encoded
+     */
+    private static String fingerprint(String token) {
+
+        try {
+
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(32);
+
+            for (int i = 0; i < 16; i++)
+                hex.append(Character.forDigit((digest[i] >> 4) & 0xf, 16)).append(Character.forDigit(digest[i] & 0xf, 16));
+
+            return hex.toString();
+
+        } catch (NoSuchAlgorithmException e) {
+
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+
+    /**
+     * @return Attribute restricting a new file to the given POSIX permissions, none where they are not supported
+     */
+    private static FileAttribute<?>[] ownerOnly(String permissions) {
+
+        if (!FileSystems.getDefault().supportedFileAttributeViews().contains("posix"))
+            return new FileAttribute<?>[0];
+
+        return new FileAttribute<?>[]{PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString(permissions))};
+    }
+
+    /**
+     * Releases the mapping of a deleted segment now rather than when the buffer is garbage collected. Every access to
+     * a segment buffer checks under the lock that it was neither deleted nor closed, so an unmapped buffer is never
+     * touched again. Relies on {@code sun.misc.Unsafe#invokeCleaner} from Java 9 on and on the buffer's cleaner before.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+
+        try {
+
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+
+            try {
+
+                Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+
+                theUnsafe.setAccessible(true);
+                invokeCleaner.invoke(theUnsafe.get(null), buffer);
+
+            } catch (NoSuchMethodException e) {
+
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+
+                cleanerMethod.setAccessible(true);
+
+                Object cleaner = cleanerMethod.invoke(buffer);
+
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+
+        } catch (ReflectiveOperationException | RuntimeException e) {
+
+            LOGGER.debug("Failed to unmap spool segment, leaving it to the garbage collector.", e);
+        }
+    }
+
+    static final class Entry {
+
+        private final Segment segment;
+        private final int offset;
+        private final int length;
+
+        private Entry(Segment segment, int offset, int length) {
+
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    static final class Record {
+
+        final URI uri;
+        final String token;
+        final byte[] payload;
+
+        private Record(URI uri, String token, byte[] payload) {
+
+            this.uri = uri;
+            this.token = token;
+            this.payload = payload;
+        }
+    }
+
+    private static final class Segment {
+
+        private final long index;
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+        private int live;
+        // Pending records of another token, which keep the segment but are never redelivered by this client.
+        private int foreign;
+        private boolean deleted;
+
+        private Segment(long index, Path path, MappedByteBuffer buffer) {
+
+            this.index = index;
+            this.path = path;
+            this.buffer = buffer;
+        }
+
+        /**
+         * @return {@code true} when no record of any token is pending in the segment
+         */
+        private boolean isEmpty() {
+
+            return live == 0 && foreign == 0;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package co.botanalytics.sdk;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Groups payloads per endpoint and hands each group to a sender as a single JSON array once it reaches the configured
+ * event count, byte size or linger time. The buffer lock is a {@link ReentrantLock} and batches are sent after
+ * releasing it, so virtual threads adding events are never pinned.
+ * <p>
+ * The array is posted to the events' own endpoint, which must accept array bodies, see
+ * {@link BotanalyticsConfiguration.Builder#batchMaxEvents(int)}.
+ */
+class EventBatcher {
+
+    private final int maxEvents;
+    private final long maxBytes;
+    private final long lingerMillis;
+    private final Sender sender;
+    private final Map<URI, Batch> batches = new HashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final boolean ownsScheduler;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    EventBatcher(BotanalyticsConfiguration configuration, Sender sender) {
+
+        this(configuration, newScheduler(), true, sender);
+    }
+
+    /**
+     * Creates a batcher scheduling its linger timeouts on a scheduler shared with other batchers, which it does not
+     * shut down when closed.
+     */
+    EventBatcher(BotanalyticsConfiguration configuration, ScheduledExecutorService scheduler, Sender sender) {
+
+        this(configuration, scheduler, false, sender);
+    }
+
+    private EventBatcher(BotanalyticsConfiguration configuration, ScheduledExecutorService scheduler, boolean ownsScheduler, Sender sender) {
+
+        this.maxEvents = configuration.getBatchMaxEvents();
+        this.maxBytes = configuration.getBatchMaxBytes();
+        this.lingerMillis = configuration.getBatchLingerMillis();
+        this.sender = sender;
+        this.scheduler = scheduler;
+        this.ownsScheduler = ownsScheduler;
+    }
+
+    static ScheduledExecutorService newScheduler() {
+
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+
+            Thread thread = new Thread(runnable, "botanalytics-batcher");
+            thread.setDaemon(true);
+
+            return thread;
+        });
+    }
+
+    CompletableFuture<Void> add(URI uri, byte[] payload) {
+
+        int payloadBytes = payload.length;
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        List<Batch> ready = new ArrayList<>(2);
+
+        lock.lock();
+
+        try {
+
+            Batch batch = batches.get(uri);
+
+            if (batch != null && batch.bytes + payloadBytes + 1 > maxBytes) {
+
+                batches.remove(uri);
+                ready.add(batch);
+                batch = null;
+            }
+
+            if (batch == null) {
+
+                final Batch created = new Batch(uri);
+                batches.put(uri, created);
+                scheduler.schedule(() -> flush(created), lingerMillis, TimeUnit.MILLISECONDS);
+                batch = created;
+            }
+
+            batch.payloads.add(payload);
+            batch.futures.add(future);
+            batch.bytes += payloadBytes + 1;
+
+            if (batch.payloads.size() >= maxEvents || batch.bytes >= maxBytes) {
+
+                batches.remove(uri);
+                ready.add(batch);
+            }
+
+        } finally {
+
+            lock.unlock();
+        }
+
+        for (Batch batch : ready)
+            send(batch);
+
+        return future;
+    }
+
+    /**
+     * Sends every pending batch regardless of its size or age.
+     * @return Future completed when all flushed batches were delivered
+     */
+    CompletableFuture<Void> flushAll() {
+
+        List<Batch> pending;
+
+        lock.lock();
+
+        try {
+
+            pending = new ArrayList<>(batches.values());
+            batches.clear();
+
+        } finally {
+
+            lock.unlock();
+        }
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        for (Batch batch : pending)
+            futures.add(send(batch));
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    int getBufferedEvents() {
+
+        int count = 0;
+
+        lock.lock();
+
+        try {
+
+            for (Batch batch : batches.values())
+                count += batch.payloads.size();
+
+        } finally {
+
+            lock.unlock();
+        }
+
+        return count;
+    }
+
+    void close() {
+
+        if (ownsScheduler)
+            scheduler.shutdownNow();
+    }
+
+    private void flush(Batch batch) {
+
+        lock.lock();
+
+        try {
+
+            if (batches.get(batch.uri) != batch)
+                return;
+
+            batches.remove(batch.uri);
+
+        } finally {
+
+            lock.unlock();
+        }
+
+        send(batch);
+    }
+
+    private CompletableFuture<Void> send(final Batch batch) {
+
+        byte[] body = new byte[(int) batch.bytes];
+        int position = 0;
+
+        body[position++] = '[';
+
+        for (int i = 0; i < batch.payloads.size(); i++) {
+
+            if (i > 0)
+                body[position++] = ',';
+
+            byte[] payload = batch.payloads.get(i);
+
+            System.arraycopy(payload, 0, body, position, payload.length);
+            position += payload.length;
+        }
+
+        body[position] = ']';
+
+        return sender.send(batch.uri, body).whenComplete((result, error) -> {
+
+            for (CompletableFuture<Void> future : batch.futures) {
+
+                if (error == null) {
+
+                    future.complete(null);
+
+                } else {
+
+                    future.completeExceptionally(error);
+                }
+            }
+        });
+    }
+
+    interface Sender {
+
+        CompletableFuture<Void> send(URI uri, byte[] payload);
+    }
+
+    private static final class Batch {
+
+        private final URI uri;
+        private final List<byte[]> payloads = new ArrayList<>();
+        private final List<CompletableFuture<Void>> futures = new ArrayList<>();
+        private long bytes = 1;
+
+        private Batch(URI uri) {
+
+            this.uri = uri;
+        }
+    }
+}
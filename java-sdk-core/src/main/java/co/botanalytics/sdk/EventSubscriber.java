@@ -0,0 +1,199 @@
+package co.botanalytics.sdk;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reactive Streams {@link Subscriber} logging every received event without blocking the publisher's thread. Demand is
+ * bounded by the number of events in flight: the subscriber requests that many events up front and one more each time
+ * an event was delivered, failed or dropped, so a slow API slows the publisher down instead of filling a queue.
+ * <p>
+ * Delivery failures are logged and do not cancel the subscription, since analytics should not break the pipeline it
+ * observes. The subscription is only cancelled once the client is closed, which fails {@link #whenDone()}.
+ * <p>
+ * On Java 9 and later, {@code org.reactivestreams.FlowAdapters.toFlowSubscriber(subscriber)} turns this into a
+ * {@code java.util.concurrent.Flow.Subscriber}.
+ * @param <T> Type of the events
+ */
+public final class EventSubscriber<T> implements Subscriber<T> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventSubscriber.class);
+
+    private final BotanalyticsClient client;
+    private final URI uri;
+    private final Serializer<? super T> serializer;
+    private final int maxInFlight;
+    private final AtomicLong unrequested = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+    private volatile Subscription subscription;
+    private volatile boolean completed;
+    private volatile boolean cancelled;
+
+    EventSubscriber(BotanalyticsClient client, URI uri, Serializer<? super T> serializer, int maxInFlight) {
+
+        this.client = client;
+        this.uri = uri;
+        this.serializer = serializer;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * @return Future completed once the publisher completed or failed and every received event was handled, or
+     * completed exceptionally with an {@link IllegalStateException} once the client was closed
+     */
+    public CompletableFuture<Void> whenDone() {
+
+        return done;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+
+        if (subscription == null)
+            throw new NullPointerException("subscription");
+
+        if (this.subscription != null) {
+
+            subscription.cancel();
+
+            return;
+        }
+
+        this.subscription = subscription;
+
+        request(maxInFlight);
+    }
+
+    @Override
+    public void onNext(T event) {
+
+        if (event == null)
+            throw new NullPointerException("event");
+
+        inFlight.incrementAndGet();
+
+        byte[] payload;
+
+        try {
+
+            payload = serializer.serialize(event);
+
+        } catch (Throwable t) {
+
+            LOGGER.warn("Failed to serialize event, skipping it.", t);
+
+            release();
+
+            return;
+        }
+
+        if (payload == null) {
+
+            release();
+
+            return;
+        }
+
+        client.sendRequestAsync(uri, payload).whenComplete((result, error) -> {
+
+            if (error instanceof IllegalStateException) {
+
+                cancel(error);
+
+            } else if (error != null) {
+
+                LOGGER.warn("Failed to log event received from publisher.", error);
+            }
+
+            release();
+        });
+    }
+
+    @Override
+    public void onError(Throwable error) {
+
+        LOGGER.warn("Publisher of logged events failed.", error);
+
+        finish();
+    }
+
+    @Override
+    public void onComplete() {
+
+        finish();
+    }
+
+    private void finish() {
+
+        completed = true;
+
+        if (inFlight.get() == 0)
+            done.complete(null);
+    }
+
+    private void release() {
+
+        if (inFlight.decrementAndGet() == 0 && completed) {
+
+            done.complete(null);
+
+            return;
+        }
+
+        request(1);
+    }
+
+    /**
+     * Fails {@link #whenDone()} and hands the cancellation to the thread issuing requests, as one more unit of demand,
+     * so it does not overlap a request.
+     */
+    private void cancel(Throwable error) {
+
+        cancelled = true;
+
+        done.completeExceptionally(error);
+
+        request(1);
+    }
+
+    /**
+     * Adds demand. Whichever thread finds no request in progress issues it, including demand added concurrently
+     * meanwhile, so calls to the subscription never overlap. Once cancelled, the demand is left unissued, so no later
+     * call reaches the subscription.
+     */
+    private void request(long n) {
+
+        if (unrequested.getAndAdd(n) != 0)
+            return;
+
+        while (n != 0) {
+
+            if (cancelled) {
+
+                subscription.cancel();
+
+                return;
+            }
+
+            subscription.request(n);
+
+            n = unrequested.addAndGet(-n);
+        }
+    }
+
+    /**
+     * Converts an event to the JSON request body, or to {@code null} to skip the event.
+     */
+    public interface Serializer<T> {
+
+        byte[] serialize(T event) throws Throwable;
+    }
+}
@@ -0,0 +1,123 @@
+package co.botanalytics.sdk;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * {@link CompressionCodec} producing {@code gzip} bodies with the JDK's deflater.
+ * <p>
+ * Deflaters and their output buffers are pooled, one per concurrently compressing thread up to the number of
+ * processors, so compressing a body only allocates the returned array once the pool is warm.
+ */
+public final class GzipCodec implements CompressionCodec {
+
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+    private static final int TRAILER_BYTES = 8;
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
+    private final int level;
+    private final BlockingQueue<Compressor> pool = new ArrayBlockingQueue<>(Math.max(2, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * Constructs a codec using the default compression level.
+     */
+    public GzipCodec() {
+
+        this(Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param level Compression level from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}
+     */
+    public GzipCodec(int level) {
+
+        if ((level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) && level != Deflater.DEFAULT_COMPRESSION)
+            throw new IllegalArgumentException("level must be between 1 and 9.");
+
+        this.level = level;
+    }
+
+    @Override
+    public String getEncoding() {
+
+        return "gzip";
+    }
+
+    @Override
+    public byte[] compress(byte[] body) {
+
+        Compressor compressor = pool.poll();
+
+        if (compressor == null)
+            compressor = new Compressor(level);
+
+        try {
+
+            return compressor.compress(body);
+
+        } finally {
+
+            if (!pool.offer(compressor))
+                compressor.deflater.end();
+        }
+    }
+
+    /**
+     * Raw deflater wrapped in the gzip header and trailer by hand, which {@link java.util.zip.GZIPOutputStream} can
+     * not do without a new deflater and stream buffers per body.
+     */
+    private static final class Compressor {
+
+        private final Deflater deflater;
+        private final CRC32 crc = new CRC32();
+        private byte[] buffer = new byte[1024];
+
+        private Compressor(int level) {
+
+            this.deflater = new Deflater(level, true);
+        }
+
+        private byte[] compress(byte[] body) {
+
+            deflater.reset();
+            deflater.setInput(body);
+            deflater.finish();
+
+            int bound = HEADER.length + body.length + (body.length >> 12) + (body.length >> 14) + 13 + TRAILER_BYTES;
+            byte[] out = buffer.length >= bound ? buffer : new byte[bound];
+            int length = HEADER.length;
+
+            System.arraycopy(HEADER, 0, out, 0, HEADER.length);
+
+            while (!deflater.finished()) {
+
+                if (length == out.length - TRAILER_BYTES)
+                    out = Arrays.copyOf(out, out.length * 2);
+
+                length += deflater.deflate(out, length, out.length - TRAILER_BYTES - length);
+            }
+
+            crc.reset();
+            crc.update(body, 0, body.length);
+
+            writeIntLE(out, length, (int) crc.getValue());
+            writeIntLE(out, length + 4, body.length);
+
+            if (out.length <= MAX_RETAINED_BUFFER)
+                buffer = out;
+
+            return Arrays.copyOf(out, length + TRAILER_BYTES);
+        }
+
+        private static void writeIntLE(byte[] bytes, int offset, int value) {
+
+            bytes[offset] = (byte) value;
+            bytes[offset + 1] = (byte) (value >>> 8);
+            bytes[offset + 2] = (byte) (value >>> 16);
+            bytes[offset + 3] = (byte) (value >>> 24);
+        }
+    }
+}
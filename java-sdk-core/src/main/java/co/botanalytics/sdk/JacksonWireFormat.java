@@ -0,0 +1,79 @@
+package co.botanalytics.sdk;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.IOException;
+
+/**
+ * {@link WireFormat} streaming the JSON tokens of a body into a generator of another Jackson data format, without
+ * building a tree. The binary formats need {@code jackson-dataformat-cbor} or {@code jackson-dataformat-smile} on the
+ * classpath, which the SDK declares as optional dependencies:
+ * <pre>
+ * BotanalyticsConfiguration.builder().wireFormat(JacksonWireFormat.cbor()).build();
+ * </pre>
+ */
+public final class JacksonWireFormat implements WireFormat {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final String contentType;
+    private final JsonFactory factory;
+
+    /**
+     * @param contentType Value of the {@code Content-Type} header of encoded bodies
+     * @param factory Factory of the generator writing encoded bodies
+     */
+    public JacksonWireFormat(String contentType, JsonFactory factory) {
+
+        if (contentType == null || contentType.trim().length() == 0)
+            throw new IllegalArgumentException("contentType must not be empty.");
+
+        if (factory == null)
+            throw new IllegalArgumentException("factory must not be null.");
+
+        this.contentType = contentType;
+        this.factory = factory;
+    }
+
+    /**
+     * @return Format encoding bodies as CBOR (RFC 8949)
+     */
+    public static JacksonWireFormat cbor() {
+
+        return new JacksonWireFormat("application/cbor", new CBORFactory());
+    }
+
+    /**
+     * @return Format encoding bodies as Smile, Jackson's binary JSON
+     */
+    public static JacksonWireFormat smile() {
+
+        return new JacksonWireFormat("application/x-jackson-smile", new SmileFactory());
+    }
+
+    @Override
+    public String getContentType() {
+
+        return contentType;
+    }
+
+    @Override
+    public byte[] encode(byte[] json) throws IOException {
+
+        ByteArrayBuilder out = new ByteArrayBuilder(json.length);
+
+        try (JsonParser parser = JSON_FACTORY.createParser(json);
+             JsonGenerator generator = factory.createGenerator(out)) {
+
+            while (parser.nextToken() != null)
+                generator.copyCurrentStructure(parser);
+        }
+
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,444 @@
+package co.botanalytics.sdk;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link MetricsListener} publishing to the platform MBean server without any extra dependency. Registers one
+ * {@code co.botanalytics:type=Client,name=<name>} bean with the client's gauges and one
+ * {@code co.botanalytics:type=Endpoint,client=<name>,endpoint=<endpoint>} bean per endpoint the first time it is used.
+ * Beans are unregistered when the client is closed.
+ * <p>
+ * Latency percentiles are read from a histogram with power-of-two microsecond buckets, so they are upper bounds within a
+ * factor of two, capped at the observed maximum.
+ * <p>
+ * Use one instance per client.
+ */
+public class JmxMetricsListener implements MetricsListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JmxMetricsListener.class);
+    private static final String DOMAIN = "co.botanalytics";
+
+    private final String name;
+    private final MBeanServer server;
+    private final ConcurrentMap<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    /**
+     * @param name Name distinguishing this client's beans from other clients in the same JVM
+     */
+    public JmxMetricsListener(String name) {
+
+        this(name, ManagementFactory.getPlatformMBeanServer());
+    }
+
+    public JmxMetricsListener(String name, MBeanServer server) {
+
+        this.name = name;
+        this.server = server;
+    }
+
+    @Override
+    public void onStart(final ClientGauges gauges) {
+
+        register(clientName(), new ClientMXBean() {
+
+            @Override
+            public int getQueueDepth() {
+
+                return gauges.getQueueDepth();
+            }
+
+            @Override
+            public int getBufferedEvents() {
+
+                return gauges.getBufferedEvents();
+            }
+
+            @Override
+            public int getSpoolBacklog() {
+
+                return gauges.getSpoolBacklog();
+            }
+
+            @Override
+            public int getLeasedConnections() {
+
+                return gauges.getLeasedConnections();
+            }
+
+            @Override
+            public int getAvailableConnections() {
+
+                return gauges.getAvailableConnections();
+            }
+
+            @Override
+            public int getPendingConnections() {
+
+                return gauges.getPendingConnections();
+            }
+
+            @Override
+            public int getMaxConnections() {
+
+                return gauges.getMaxConnections();
+            }
+
+            @Override
+            public int getConcurrencyLimit() {
+
+                return gauges.getConcurrencyLimit();
+            }
+
+            @Override
+            public int getInFlightRequests() {
+
+                return gauges.getInFlightRequests();
+            }
+        });
+    }
+
+    @Override
+    public void onEnqueued(String endpoint) {
+
+        endpoint(endpoint).enqueued.increment();
+    }
+
+    @Override
+    public void onDropped(String endpoint) {
+
+        endpoint(endpoint).dropped.increment();
+    }
+
+    @Override
+    public void onFiltered(String endpoint) {
+
+        endpoint(endpoint).filtered.increment();
+    }
+
+    @Override
+    public void onSent(String endpoint, int statusCode, long requestBytes, long latencyNanos) {
+
+        Endpoint metrics = endpoint(endpoint);
+
+        metrics.bytesSent.add(requestBytes);
+        metrics.latency.record(latencyNanos);
+        metrics.statusCount(statusCode).increment();
+    }
+
+    @Override
+    public void onSendFailed(String endpoint, long latencyNanos, Throwable error) {
+
+        Endpoint metrics = endpoint(endpoint);
+
+        metrics.errors.increment();
+        metrics.latency.record(latencyNanos);
+    }
+
+    @Override
+    public void onClose() {
+
+        unregister(clientName());
+
+        for (String endpoint : endpoints.keySet())
+            unregister(endpointName(endpoint));
+
+        endpoints.clear();
+    }
+
+    private Endpoint endpoint(String endpoint) {
+
+        Endpoint metrics = endpoints.get(endpoint);
+
+        if (metrics != null)
+            return metrics;
+
+        Endpoint created = new Endpoint();
+
+        metrics = endpoints.putIfAbsent(endpoint, created);
+
+        if (metrics != null)
+            return metrics;
+
+        register(endpointName(endpoint), created);
+
+        return created;
+    }
+
+    private ObjectName clientName() {
+
+        return objectName("type=Client,name=" + ObjectName.quote(name));
+    }
+
+    private ObjectName endpointName(String endpoint) {
+
+        return objectName("type=Endpoint,client=" + ObjectName.quote(name) + ",endpoint=" + ObjectName.quote(endpoint));
+    }
+
+    private static ObjectName objectName(String properties) {
+
+        try {
+
+            return new ObjectName(DOMAIN + ":" + properties);
+
+        } catch (JMException e) {
+
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private void register(ObjectName objectName, Object bean) {
+
+        try {
+
+            if (server.isRegistered(objectName))
+                server.unregisterMBean(objectName);
+
+            server.registerMBean(bean, objectName);
+
+        } catch (JMException e) {
+
+            LOGGER.warn("Failed to register MBean {}.", objectName, e);
+        }
+    }
+
+    private void unregister(ObjectName objectName) {
+
+        try {
+
+            if (server.isRegistered(objectName))
+                server.unregisterMBean(objectName);
+
+        } catch (JMException e) {
+
+            LOGGER.warn("Failed to unregister MBean {}.", objectName, e);
+        }
+    }
+
+    public interface ClientMXBean {
+
+        int getQueueDepth();
+
+        int getBufferedEvents();
+
+        int getSpoolBacklog();
+
+        int getLeasedConnections();
+
+        int getAvailableConnections();
+
+        int getPendingConnections();
+
+        int getMaxConnections();
+
+        int getConcurrencyLimit();
+
+        int getInFlightRequests();
+    }
+
+    public interface EndpointMXBean {
+
+        long getEventsEnqueued();
+
+        long getEventsDropped();
+
+        long getEventsFiltered();
+
+        long getRequests();
+
+        long getRequestErrors();
+
+        long getBytesSent();
+
+        /**
+         * @return Number of responses per HTTP status code
+         */
+        Map<String, Long> getStatusCounts();
+
+        double getLatencyMeanMillis();
+
+        double getLatencyMaxMillis();
+
+        double getLatencyP50Millis();
+
+        double getLatencyP99Millis();
+    }
+
+    private static final class Endpoint implements EndpointMXBean {
+
+        private final LongAdder enqueued = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder filtered = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder bytesSent = new LongAdder();
+        private final ConcurrentMap<Integer, LongAdder> statusCounts = new ConcurrentHashMap<>();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private LongAdder statusCount(int statusCode) {
+
+            LongAdder count = statusCounts.get(statusCode);
+
+            if (count == null) {
+
+                LongAdder created = new LongAdder();
+
+                count = statusCounts.putIfAbsent(statusCode, created);
+
+                if (count == null)
+                    count = created;
+            }
+
+            return count;
+        }
+
+        @Override
+        public long getEventsEnqueued() {
+
+            return enqueued.sum();
+        }
+
+        @Override
+        public long getEventsDropped() {
+
+            return dropped.sum();
+        }
+
+        @Override
+        public long getEventsFiltered() {
+
+            return filtered.sum();
+        }
+
+        @Override
+        public long getRequests() {
+
+            long requests = 0;
+
+            for (LongAdder count : statusCounts.values())
+                requests += count.sum();
+
+            return requests;
+        }
+
+        @Override
+        public long getRequestErrors() {
+
+            return errors.sum();
+        }
+
+        @Override
+        public long getBytesSent() {
+
+            return bytesSent.sum();
+        }
+
+        @Override
+        public Map<String, Long> getStatusCounts() {
+
+            Map<String, Long> counts = new TreeMap<>();
+
+            for (Map.Entry<Integer, LongAdder> entry : statusCounts.entrySet())
+                counts.put(Integer.toString(entry.getKey()), entry.getValue().sum());
+
+            return counts;
+        }
+
+        @Override
+        public double getLatencyMeanMillis() {
+
+            return latency.meanMillis();
+        }
+
+        @Override
+        public double getLatencyMaxMillis() {
+
+            return latency.maxMillis();
+        }
+
+        @Override
+        public double getLatencyP50Millis() {
+
+            return latency.percentileMillis(0.5);
+        }
+
+        @Override
+        public double getLatencyP99Millis() {
+
+            return latency.percentileMillis(0.99);
+        }
+    }
+
+    /**
+     * Lock-free histogram where bucket {@code i} counts latencies below {@code 2^i} microseconds.
+     */
+    private static final class LatencyHistogram {
+
+        private static final int BUCKETS = 40;
+        private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private void record(long nanos) {
+
+            long micros = Math.max(0, nanos / 1000);
+            int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+
+            buckets.incrementAndGet(bucket);
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        private double meanMillis() {
+
+            long samples = count.sum();
+
+            return samples == 0 ? 0 : totalNanos.sum() / NANOS_PER_MILLI / samples;
+        }
+
+        private double maxMillis() {
+
+            return maxNanos.get() / NANOS_PER_MILLI;
+        }
+
+        private double percentileMillis(double quantile) {
+
+            long samples = 0;
+
+            for (int i = 0; i < BUCKETS; i++)
+                samples += buckets.get(i);
+
+            if (samples == 0)
+                return 0;
+
+            long rank = (long) Math.ceil(quantile * samples);
+            long seen = 0;
+
+            for (int i = 0; i < BUCKETS; i++) {
+
+                seen += buckets.get(i);
+
+                if (seen >= rank)
+                    return Math.min((1L << i) / 1000.0, maxMillis());
+            }
+
+            return maxMillis();
+        }
+    }
+}
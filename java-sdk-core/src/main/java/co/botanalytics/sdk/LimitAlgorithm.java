@@ -0,0 +1,21 @@
+package co.botanalytics.sdk;
+
+/**
+ * Decides how the adaptive concurrency limiter moves the number of requests allowed in flight, between one and
+ * {@link BotanalyticsConfiguration#getMaxConnectionsPerRoute()}. Network errors, {@code 429} and {@code 5xx}
+ * responses count as drops for both algorithms, except a {@code 429} in a group, which only throttles its token.
+ */
+public enum LimitAlgorithm {
+
+    /**
+     * Additive increase, multiplicative decrease: the limit grows by one per round trip while it is in use and shrinks
+     * by 10% on every drop. Reacts to errors only.
+     */
+    AIMD,
+
+    /**
+     * Compares each round trip time with its long-term average, growing the limit while latency stays flat and
+     * shrinking it as latency climbs, before the API starts failing. Shrinks by 10% on every drop as well.
+     */
+    GRADIENT
+}
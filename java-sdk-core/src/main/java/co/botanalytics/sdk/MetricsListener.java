@@ -0,0 +1,73 @@
+package co.botanalytics.sdk;
+
+/**
+ * Receives measurements from a {@link BotanalyticsClient}'s pipeline. Every callback has an empty default, so
+ * implementations only override what they record. Callbacks run on the thread doing the work, which can be the
+ * caller's thread, so implementations must be thread-safe and must not block.
+ * <p>
+ * Endpoints are reported relative to the client's base URI, e.g. {@code messages/rbm/}.
+ * <p>
+ * When no listener is configured the client skips timing and endpoint lookup entirely.
+ */
+public interface MetricsListener {
+
+    /**
+     * Listener recording nothing. This is the default.
+     */
+    MetricsListener NONE = new MetricsListener() {
+    };
+
+    /**
+     * Called once the client is constructed.
+     * @param gauges Live view of the client's queues and connection pool, valid until {@link #onClose()}
+     */
+    default void onStart(ClientGauges gauges) {
+    }
+
+    /**
+     * An event was handed to the client for asynchronous delivery.
+     * @param endpoint Endpoint the event is logged to
+     */
+    default void onEnqueued(String endpoint) {
+    }
+
+    /**
+     * An asynchronously logged event was discarded because the dispatch queue was full.
+     * @param endpoint Endpoint the event was logged to
+     */
+    default void onDropped(String endpoint) {
+    }
+
+    /**
+     * An event was rejected by a client-side filter, such as sampling or rate limiting, before it was serialized.
+     * @param endpoint Endpoint the event would have been logged to
+     */
+    default void onFiltered(String endpoint) {
+    }
+
+    /**
+     * An HTTP request completed with a response, including retried attempts. With batching enabled one request carries
+     * several events.
+     * @param endpoint Endpoint the request was sent to
+     * @param statusCode HTTP status code of the response
+     * @param requestBytes Size of the request body
+     * @param latencyNanos Time from sending the request until the response was handled
+     */
+    default void onSent(String endpoint, int statusCode, long requestBytes, long latencyNanos) {
+    }
+
+    /**
+     * An HTTP request failed without a response, e.g. on a connection error or timeout.
+     * @param endpoint Endpoint the request was sent to
+     * @param latencyNanos Time from sending the request until it failed
+     * @param error Cause of the failure
+     */
+    default void onSendFailed(String endpoint, long latencyNanos, Throwable error) {
+    }
+
+    /**
+     * Called once the client is closed. Implementations should release what {@link #onStart(ClientGauges)} set up.
+     */
+    default void onClose() {
+    }
+}
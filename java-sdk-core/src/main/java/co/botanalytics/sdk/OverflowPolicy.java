@@ -0,0 +1,22 @@
+package co.botanalytics.sdk;
+
+/**
+ * Decides what happens to an asynchronously logged event when the dispatch queue is full.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Evicts the oldest queued event to make room for the new one.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Rejects the new event and keeps the queued ones.
+     */
+    DROP_NEWEST,
+
+    /**
+     * Blocks the caller until space frees up or the configured block timeout elapses.
+     */
+    BLOCK
+}
@@ -0,0 +1,96 @@
+package co.botanalytics.sdk;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parts of the requests a client sends to one endpoint that never change: the URI, the endpoint name reported to
+ * metrics and the immutable header maps, with the authorization header rendered once. Requests built from a template
+ * share them, so a send only allocates the {@link TransportRequest} itself. There is one header map per combination of
+ * JSON or the client's wire format and plain or compressed body.
+ */
+final class RequestTemplate {
+
+    private static final String CONTENT_TYPE_JSON = "application/json; charset=UTF-8";
+
+    private final URI uri;
+    private final String endpoint;
+    private final String token;
+    private final Map<String, String> headers;
+    private final Map<String, String> encodedHeaders;
+    private final Map<String, String> formatHeaders;
+    private final Map<String, String> formatEncodedHeaders;
+    private final String contentType;
+    private final String encoding;
+
+    /**
+     * @param contentType Content type of the client's wire format, or {@code null} when the client sends JSON
+     * @param encoding Content encoding of compressed bodies, or {@code null} when the client does not compress
+     */
+    RequestTemplate(URI uri, String endpoint, String token, String contentType, String encoding) {
+
+        this.uri = uri;
+        this.endpoint = endpoint;
+        this.token = token;
+        this.headers = headers(token, null, null);
+        this.encodedHeaders = encoding == null ? null : headers(token, null, encoding);
+        this.formatHeaders = contentType == null ? null : headers(token, contentType, null);
+        this.formatEncodedHeaders = contentType == null || encoding == null ? null : headers(token, contentType, encoding);
+        this.contentType = contentType;
+        this.encoding = encoding;
+    }
+
+    URI getUri() {
+
+        return uri;
+    }
+
+    String getEndpoint() {
+
+        return endpoint;
+    }
+
+    /**
+     * @param token Token of the request, which differs from the template's only for events spooled by another client
+     * @param contentType Content type of the body, or {@code null} when it is JSON
+     * @param encoding Content encoding of the body, or {@code null} when it is not compressed
+     */
+    TransportRequest newRequest(String token, byte[] body, String contentType, String encoding) {
+
+        Map<String, String> shared = token.equals(this.token) ? sharedHeaders(contentType, encoding) : null;
+
+        return new TransportRequest(uri, body, shared != null ? shared : headers(token, contentType, encoding));
+    }
+
+    /**
+     * @return Prebuilt headers for the content type and encoding, or {@code null} when they differ from the client's
+     */
+    private Map<String, String> sharedHeaders(String contentType, String encoding) {
+
+        if (contentType != null && !contentType.equals(this.contentType))
+            return null;
+
+        if (encoding == null)
+            return contentType == null ? headers : formatHeaders;
+
+        if (!encoding.equals(this.encoding))
+            return null;
+
+        return contentType == null ? encodedHeaders : formatEncodedHeaders;
+    }
+
+    private static Map<String, String> headers(String token, String contentType, String encoding) {
+
+        Map<String, String> headers = new LinkedHashMap<>();
+
+        headers.put("Authorization", "Token ".concat(token));
+        headers.put("Content-Type", contentType == null ? CONTENT_TYPE_JSON : contentType);
+
+        if (encoding != null)
+            headers.put("Content-Encoding", encoding);
+
+        return Collections.unmodifiableMap(headers);
+    }
+}
@@ -0,0 +1,163 @@
+package co.botanalytics.sdk;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides how often and how long apart a request is retried after a network error, a {@code 429} or a {@code 5xx}
+ * response. Delays grow exponentially and are drawn uniformly between zero and the current cap ("full jitter") so that
+ * many clients recovering at once do not retry in lockstep. A {@code Retry-After} header sent by the API takes
+ * precedence over the computed delay.
+ * <p>
+ * Logged events are treated as idempotent, so a request whose response got lost may be delivered twice.
+ */
+public final class RetryPolicy {
+
+    private static final RetryPolicy NONE = builder().maxAttempts(1).build();
+    private static final RetryPolicy DEFAULTS = builder().build();
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final boolean honorRetryAfter;
+    private final long maxRetryAfterMillis;
+
+    private RetryPolicy(Builder builder) {
+
+        this.maxAttempts = builder.maxAttempts;
+        this.baseDelayMillis = builder.baseDelayMillis;
+        this.maxDelayMillis = builder.maxDelayMillis;
+        this.honorRetryAfter = builder.honorRetryAfter;
+        this.maxRetryAfterMillis = builder.maxRetryAfterMillis;
+    }
+
+    /**
+     * @return Policy making a single attempt per request
+     */
+    public static RetryPolicy none() {
+
+        return NONE;
+    }
+
+    /**
+     * @return Policy making up to 3 attempts, starting at 100 milliseconds of backoff
+     */
+    public static RetryPolicy defaults() {
+
+        return DEFAULTS;
+    }
+
+    public static Builder builder() {
+
+        return new Builder();
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * @param attempt Number of the attempt that just failed, starting at 1
+     * @param retryAfterMillis Delay requested by the API, or a negative value when none was requested
+     * @return Milliseconds to wait before the next attempt
+     */
+    long delayMillis(int attempt, long retryAfterMillis) {
+
+        if (honorRetryAfter && retryAfterMillis >= 0)
+            return Math.min(retryAfterMillis, maxRetryAfterMillis);
+
+        long cap = baseDelayMillis << Math.min(attempt - 1, 30);
+
+        if (cap <= 0 || cap > maxDelayMillis)
+            cap = maxDelayMillis;
+
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    public static final class Builder {
+
+        private int maxAttempts = 3;
+        private long baseDelayMillis = 100;
+        private long maxDelayMillis = 10000;
+        private boolean honorRetryAfter = true;
+        private long maxRetryAfterMillis = 60000;
+
+        private Builder() {
+        }
+
+        /**
+         * @param maxAttempts Total number of attempts per request, including the first one
+         * @return This builder
+         */
+        public Builder maxAttempts(int maxAttempts) {
+
+            if (maxAttempts < 1)
+                throw new IllegalArgumentException("maxAttempts must be positive.");
+
+            this.maxAttempts = maxAttempts;
+
+            return this;
+        }
+
+        /**
+         * @param delay Backoff cap after the first failed attempt, doubled after every further failure
+         * @param unit Unit of the delay
+         * @return This builder
+         */
+        public Builder baseDelay(long delay, TimeUnit unit) {
+
+            if (delay < 0)
+                throw new IllegalArgumentException("baseDelay must not be negative.");
+
+            this.baseDelayMillis = unit.toMillis(delay);
+
+            return this;
+        }
+
+        /**
+         * @param delay Upper bound of the backoff between two attempts
+         * @param unit Unit of the delay
+         * @return This builder
+         */
+        public Builder maxDelay(long delay, TimeUnit unit) {
+
+            if (delay < 0)
+                throw new IllegalArgumentException("maxDelay must not be negative.");
+
+            this.maxDelayMillis = unit.toMillis(delay);
+
+            return this;
+        }
+
+        /**
+         * @param honorRetryAfter Whether a {@code Retry-After} response header overrides the computed backoff
+         * @return This builder
+         */
+        public Builder honorRetryAfter(boolean honorRetryAfter) {
+
+            this.honorRetryAfter = honorRetryAfter;
+
+            return this;
+        }
+
+        /**
+         * @param delay Upper bound applied to delays requested through {@code Retry-After}
+         * @param unit Unit of the delay
+         * @return This builder
+         */
+        public Builder maxRetryAfter(long delay, TimeUnit unit) {
+
+            if (delay < 0)
+                throw new IllegalArgumentException("maxRetryAfter must not be negative.");
+
+            this.maxRetryAfterMillis = unit.toMillis(delay);
+
+            return this;
+        }
+
+        public RetryPolicy build() {
+
+            return new RetryPolicy(this);
+        }
+    }
+}
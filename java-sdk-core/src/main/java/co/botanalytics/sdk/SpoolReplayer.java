@@ -0,0 +1,115 @@
+package co.botanalytics.sdk;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redelivers spooled events in the order they were handed over, on a single daemon thread. When a delivery attempt
+ * fails the event goes back to the head of the queue and the replayer pauses for the retry interval, so a failing API
+ * is probed once per interval instead of once per queued event.
+ */
+class SpoolReplayer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpoolReplayer.class);
+
+    private final DiskSpool spool;
+    private final Delivery delivery;
+    private final long retryIntervalMillis;
+    private final LinkedBlockingDeque<DiskSpool.Entry> queue = new LinkedBlockingDeque<>();
+    private final Thread thread;
+    private volatile boolean closed;
+
+    SpoolReplayer(DiskSpool spool, Delivery delivery, long retryIntervalMillis) {
+
+        this.spool = spool;
+        this.delivery = delivery;
+        this.retryIntervalMillis = retryIntervalMillis;
+
+        queue.addAll(spool.getRecoveredEntries());
+
+        this.thread = new Thread(this::replay, "botanalytics-spool-replayer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void enqueue(DiskSpool.Entry entry) {
+
+        queue.addLast(entry);
+    }
+
+    int getBacklog() {
+
+        return queue.size();
+    }
+
+    void close() {
+
+        closed = true;
+
+        thread.interrupt();
+    }
+
+    private void replay() {
+
+        while (!closed) {
+
+            DiskSpool.Entry entry;
+
+            try {
+
+                entry = queue.takeFirst();
+
+            } catch (InterruptedException e) {
+
+                return;
+            }
+
+            if (!spool.isAvailable(entry))
+                continue;
+
+            boolean delivered;
+
+            try {
+
+                DiskSpool.Record record = spool.read(entry);
+
+                delivered = delivery.deliver(record);
+
+            } catch (Exception e) {
+
+                LOGGER.warn("Failed to replay spooled event.", e);
+
+                delivered = false;
+            }
+
+            if (delivered) {
+
+                spool.acknowledge(entry);
+
+                continue;
+            }
+
+            queue.addFirst(entry);
+
+            try {
+
+                TimeUnit.MILLISECONDS.sleep(retryIntervalMillis);
+
+            } catch (InterruptedException e) {
+
+                return;
+            }
+        }
+    }
+
+    interface Delivery {
+
+        /**
+         * @return {@code true} when the record should be acknowledged, {@code false} to retry it later
+         */
+        boolean deliver(DiskSpool.Record record) throws Exception;
+    }
+}
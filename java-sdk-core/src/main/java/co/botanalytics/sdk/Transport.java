@@ -0,0 +1,20 @@
+package co.botanalytics.sdk;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Moves requests to the Botanalytics API over the network. {@link BotanalyticsClient} delegates every request to a
+ * transport, {@link ApacheHttpTransport} being the default one. Implementations must be thread-safe, and closing them
+ * should abort the requests still in flight.
+ */
+public interface Transport extends Closeable {
+
+    /**
+     * Sends the request and blocks until the response headers arrived.
+     * @param request Request to send
+     * @return Response, which the caller must close
+     * @throws IOException Thrown when the request could not be completed
+     */
+    TransportResponse send(TransportRequest request) throws IOException;
+}
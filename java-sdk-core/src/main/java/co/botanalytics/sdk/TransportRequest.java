@@ -0,0 +1,45 @@
+package co.botanalytics.sdk;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable POST request handed to a {@link Transport}.
+ */
+public final class TransportRequest {
+
+    private final URI uri;
+    private final Map<String, String> headers;
+    private final byte[] body;
+
+    public TransportRequest(URI uri, Map<String, String> headers, byte[] body) {
+
+        this.uri = uri;
+        this.headers = Collections.unmodifiableMap(new LinkedHashMap<>(headers));
+        this.body = body;
+    }
+
+    /**
+     * Shares headers that are already immutable instead of copying them, see {@link RequestTemplate}.
+     */
+    TransportRequest(URI uri, byte[] body, Map<String, String> immutableHeaders) {
+
+        this.uri = uri;
+        this.headers = immutableHeaders;
+        this.body = body;
+    }
+
+    public URI getUri() {
+        return uri;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+}
@@ -0,0 +1,31 @@
+package co.botanalytics.sdk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Response returned by a {@link Transport}. Closing it releases the underlying connection or stream.
+ */
+public interface TransportResponse extends Closeable {
+
+    int getStatusCode();
+
+    /**
+     * @param name Case-insensitive header name
+     * @return First value of the header, or {@code null} when absent
+     */
+    String getHeader(String name);
+
+    /**
+     * @return Response body, or {@code null} when the response has none
+     * @throws IOException Thrown when the body can not be opened
+     */
+    InputStream getBody() throws IOException;
+
+    /**
+     * Discards any unread part of the body and releases the connection. Never throws.
+     */
+    @Override
+    void close();
+}
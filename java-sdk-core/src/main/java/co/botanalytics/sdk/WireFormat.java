@@ -0,0 +1,24 @@
+package co.botanalytics.sdk;
+
+import java.io.IOException;
+
+/**
+ * Encoding of request bodies on the wire. Events are always serialized, batched and spooled as JSON; the client
+ * transcodes the final body once per request, before compression, and sends it with the format's
+ * {@code Content-Type}. When the API answers {@code 415 Unsupported Media Type} the client sends the request again as
+ * JSON and keeps using JSON from then on. See {@link JacksonWireFormat} for the CBOR and Smile formats.
+ */
+public interface WireFormat {
+
+    /**
+     * @return Value of the {@code Content-Type} header for bodies produced by this format, e.g. {@code application/cbor}
+     */
+    String getContentType();
+
+    /**
+     * @param json UTF-8 encoded JSON request body
+     * @return Request body in this format
+     * @throws IOException Thrown when the body can not be transcoded, the request is then sent as JSON
+     */
+    byte[] encode(byte[] json) throws IOException;
+}
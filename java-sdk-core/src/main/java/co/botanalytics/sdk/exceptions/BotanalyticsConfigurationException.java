@@ -1,5 +1,6 @@
 package co.botanalytics.sdk.exceptions;
 
+import java.io.IOException;
 import java.net.URISyntaxException;
 import java.text.MessageFormat;
 
@@ -10,8 +11,18 @@ public class BotanalyticsConfigurationException extends Exception {
         super(MessageFormat.format("Failed to configure Botanalytics client due to missing '{0}' field.", missingField));
     }
 
+    public BotanalyticsConfigurationException(String unsupportedField, String reason) {
+
+        super(MessageFormat.format("Failed to configure Botanalytics client due to unsupported ''{0}'' field: {1}.", unsupportedField, reason));
+    }
+
     public BotanalyticsConfigurationException(URISyntaxException e) {
 
         super("Failed to construct base URL with given configuration.", e);
     }
+
+    public BotanalyticsConfigurationException(IOException e) {
+
+        super("Failed to open event spool with given configuration.", e);
+    }
 }
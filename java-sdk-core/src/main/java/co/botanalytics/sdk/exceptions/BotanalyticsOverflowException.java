@@ -0,0 +1,9 @@
+package co.botanalytics.sdk.exceptions;
+
+public class BotanalyticsOverflowException extends Exception {
+
+    public BotanalyticsOverflowException(String message) {
+
+        super(message);
+    }
+}
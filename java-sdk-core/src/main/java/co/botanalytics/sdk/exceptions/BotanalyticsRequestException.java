@@ -8,4 +8,9 @@ public class BotanalyticsRequestException extends Exception {
 
         super("Failed to complete request.", e);
     }
+
+    public BotanalyticsRequestException(String message) {
+
+        super(message);
+    }
 }
@@ -2,18 +2,77 @@ package co.botanalytics.sdk;
 
 import static org.testng.Assert.*;
 
+import co.botanalytics.sdk.exceptions.BotanalyticsAuthorizationException;
 import co.botanalytics.sdk.exceptions.BotanalyticsConfigurationException;
 import co.botanalytics.sdk.exceptions.BotanalyticsJSONException;
+import co.botanalytics.sdk.exceptions.BotanalyticsOverflowException;
+import co.botanalytics.sdk.exceptions.BotanalyticsRequestException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.apache.commons.lang.RandomStringUtils;
+import org.apache.commons.lang.StringUtils;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.testng.SkipException;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 public class BotanalyticsClientTest {
 
+    private static final TransportResponse NO_CONTENT = new TransportResponse() {
+
+        @Override
+        public int getStatusCode() {
+
+            return 204;
+        }
+
+        @Override
+        public String getHeader(String name) {
+
+            return null;
+        }
+
+        @Override
+        public InputStream getBody() {
+
+            return null;
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
     @Test
     public void testCustomDomainConfiguration() throws BotanalyticsConfigurationException, IOException {
 
@@ -25,8 +84,1046 @@ public class BotanalyticsClientTest {
         assertEquals(instance.getBaseUri().toString(), "https://".concat(customDomain).concat("/v1/"));
     }
 
+    @Test
+    public void testAsyncDropNewestRejectsWhenQueueIsFull() throws Exception {
+
+        BotanalyticsConfiguration configuration = BotanalyticsConfiguration.builder()
+                .asyncThreads(1)
+                .asyncQueueCapacity(1)
+                .overflowPolicy(OverflowPolicy.DROP_NEWEST)
+                .build();
+
+        BlockingBotanalyticsClient instance = new BlockingBotanalyticsClient("token", configuration);
+        URI uri = instance.getBaseUri().resolve("messages/test/");
+
+        CompletableFuture<Void> inFlight = instance.sendRequestAsync(uri, "{}");
+
+        assertTrue(instance.started.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<Void> queued = instance.sendRequestAsync(uri, "{}");
+        CompletableFuture<Void> rejected = instance.sendRequestAsync(uri, "{}");
+
+        try {
+
+            rejected.get(5, TimeUnit.SECONDS);
+
+            fail("Expected the newest event to be dropped.");
+
+        } catch (ExecutionException e) {
+
+            assertTrue(e.getCause() instanceof BotanalyticsOverflowException);
+        }
+
+        instance.release.countDown();
+
+        inFlight.get(5, TimeUnit.SECONDS);
+        queued.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testCloseGivesUpOnQueuedEventsAtDrainDeadline() throws Exception {
+
+        BotanalyticsConfiguration configuration = BotanalyticsConfiguration.builder()
+                .asyncThreads(1)
+                .build();
+
+        BlockingBotanalyticsClient instance = new BlockingBotanalyticsClient("token", configuration);
+        URI uri = instance.getBaseUri().resolve("messages/test/");
+
+        CompletableFuture<Void> inFlight = instance.sendRequestAsync(uri, "{}");
+
+        assertTrue(instance.started.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<Void> queued = instance.sendRequestAsync(uri, "{}");
+
+        assertTrue(instance.getHealth().isReady());
+
+        long start = System.nanoTime();
+
+        assertFalse(instance.close(100, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertFalse(instance.getHealth().isReady());
+
+        try {
+
+            queued.get(5, TimeUnit.SECONDS);
+
+            fail("Expected the queued event to be abandoned.");
+
+        } catch (ExecutionException e) {
+
+            assertTrue(e.getCause() instanceof BotanalyticsOverflowException);
+        }
+
+        instance.release.countDown();
+
+        inFlight.get(5, TimeUnit.SECONDS);
+
+        assertTrue(instance.close(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testBatchingReducesRequestCount() throws Exception {
+
+        int eventCount = 10000;
+
+        try (StubServer server = new StubServer()) {
+
+            BotanalyticsConfiguration configuration = BotanalyticsConfiguration.builder()
+                    .scheme("http")
+                    .asyncQueueCapacity(eventCount)
+                    .batchMaxEvents(1000)
+                    .batchLinger(10, TimeUnit.SECONDS)
+                    .build();
+
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+            try (TestBotanalyticsClient instance = new TestBotanalyticsClient("token", server.getDomain(), 1, configuration)) {
+
+                URI uri = instance.getBaseUri().resolve("messages/test/");
+
+                for (int i = 0; i < eventCount; i++)
+                    futures.add(instance.sendRequestAsync(uri, "{\"id\":" + i + "}"));
+
+                instance.flush();
+            }
+
+            for (CompletableFuture<Void> future : futures)
+                future.get(5, TimeUnit.SECONDS);
+
+            assertEquals(server.getEventCount(), eventCount);
+            assertTrue(server.getRequestCount() <= eventCount / 1000, "Expected batched requests but got " + server.getRequestCount());
+        }
+    }
+
+    @Test
+    public void testErrorResponsesReleasePooledConnection() throws Throwable {
+
+        try (StubServer server = new StubServer()) {
+
+            server.setStatusCode(403);
+
+            BotanalyticsConfiguration configuration = BotanalyticsConfiguration.builder()
+                    .scheme("http")
+                    .maxConnections(1)
+                    .maxConnectionsPerRoute(1)
+                    .leaseTimeout(1, TimeUnit.SECONDS)
+                    .build();
+
+            try (TestBotanalyticsClient instance = new TestBotanalyticsClient("token", server.getDomain(), 1, configuration)) {
+
+                URI uri = instance.getBaseUri().resolve("messages/test/");
+
+                for (int i = 0; i < 20; i++) {
+
+                    try {
+
+                        instance.sendRequest(uri, "{}");
+
+                        fail("Expected an authorization error.");
+
+                    } catch (BotanalyticsAuthorizationException e) {
+
+                        // Expected, the single pooled connection must still be available for the next attempt.
+                    }
+                }
+            }
+
+            assertEquals(server.getRequestCount(), 20);
+        }
+    }
+
+    @Test
+    public void testSpooledEventsAreReplayedAfterRestart() throws Throwable {
+
+        Path spoolDirectory = Files.createTempDirectory("botanalytics-spool");
+
+        try (StubServer server = new StubServer()) {
+
+            server.setStatusCode(503);
+
+            BotanalyticsConfiguration.Builder builder = BotanalyticsConfiguration.builder()
+                    .scheme("http")
+                    .spoolDirectory(spoolDirectory)
+                    .spoolSegmentBytes(4096);
+
+            try (TestBotanalyticsClient instance = new TestBotanalyticsClient("spool-secret", server.getDomain(), 1, builder.spoolRetryInterval(1, TimeUnit.HOURS).build())) {
+
+                URI uri = instance.getBaseUri().resolve("messages/test/");
+
+                for (int i = 0; i < 3; i++)
+                    instance.sendRequest(uri, "{\"id\":" + i + "}");
+            }
+
+            try (java.util.stream.Stream<Path> files = Files.list(spoolDirectory)) {
+
+                for (Path path : (Iterable<Path>) files::iterator) {
+
+                    assertFalse(new String(Files.readAllBytes(path), StandardCharsets.ISO_8859_1).contains("spool-secret"));
+
+                    if (Files.getFileStore(path).supportsFileAttributeView("posix"))
+                        assertEquals(PosixFilePermissions.toString(Files.getPosixFilePermissions(path)), "rw-------");
+                }
+            }
+
+            // The replayer may already have probed the failing server once.
+            int failedRequests = server.getRequestCount();
+
+            assertTrue(failedRequests >= 3);
+
+            server.setStatusCode(200);
+
+            try (TestBotanalyticsClient ignored = new TestBotanalyticsClient("spool-secret", server.getDomain(), 1, builder.spoolRetryInterval(10, TimeUnit.MILLISECONDS).build())) {
+
+                long deadline = System.currentTimeMillis() + 5000;
+
+                while (server.getRequestCount() < failedRequests + 3 && System.currentTimeMillis() < deadline)
+                    Thread.sleep(10);
+            }
+
+            assertEquals(server.getRequestCount(), failedRequests + 3);
+
+        } finally {
+
+            try (java.util.stream.Stream<Path> files = Files.list(spoolDirectory)) {
+
+                files.forEach(path -> path.toFile().delete());
+            }
+
+            Files.delete(spoolDirectory);
+        }
+    }
+
+    @Test
+    public void testRetryableResponsesAreRetried() throws Throwable {
+
+        try (StubServer server = new StubServer()) {
+
+            server.enqueueStatusCodes(503, 429);
+
+            BotanalyticsConfiguration configuration = BotanalyticsConfiguration.builder()
+                    .scheme("http")
+                    .syncRetryPolicy(RetryPolicy.builder().maxAttempts(3).baseDelay(1, TimeUnit.MILLISECONDS).build())
+                    .build();
+
+            try (TestBotanalyticsClient instance = new TestBotanalyticsClient("token", server.getDomain(), 1, configuration)) {
+
+                instance.sendRequest(instance.getBaseUri().resolve("messages/test/"), "{}");
+            }
+
+            assertEquals(server.getRequestCount(), 3);
+        }
+    }
+
+    @Test
+    public void testSyncSendsAreNotRetriedByDefault() throws Throwable {
+
+        try (StubServer server = new StubServer()) {
+
+            server.enqueueStatusCodes(503, 503);
+
+            BotanalyticsConfiguration configuration = BotanalyticsConfiguration.builder()
+                    .scheme("http")
+                    .retryPolicy(RetryPolicy.builder().maxAttempts(3).baseDelay(1, TimeUnit.MILLISECONDS).build())
+                    .build();
+
+            try (TestBotanalyticsClient instance = new TestBotanalyticsClient("token", server.getDomain(), 1, configuration)) {
+
+                URI uri = instance.getBaseUri().resolve("messages/test/");
+
+                try {
+
+                    instance.sendRequest(uri, "{}");
+
+                    fail("Expected the request to fail.");
+
+                } catch (BotanalyticsRequestException e) {
+
+                    // Expected, the caller's thread does not back off.
+                }
+
+                assertEquals(server.getRequestCount(), 1);
+
+                instance.sendRequestAsync(uri, "{}").get(5, TimeUnit.SECONDS);
+            }
+
+            assertEquals(server.getRequestCount(), 3);
+        }
+    }
+
+    @Test
+    public void testOpenCircuitBreakerFailsFast() throws Throwable {
+
+        try (StubServer server = new StubServer()) {
+
+            server.setStatusCode(503);
+
+            BotanalyticsConfiguration configuration = BotanalyticsConfiguration.builder()
+                    .scheme("http")
+                    .retryPolicy(RetryPolicy.none())
+                    .circuitBreakerThreshold(2)
+                    .circuitBreakerOpenDuration(1, TimeUnit.HOURS)
+                    .build();
+
+            try (TestBotanalyticsClient instance = new TestBotanalyticsClient("token", server.getDomain(), 1, configuration)) {
+
+                URI uri = instance.getBaseUri().resolve("messages/test/");
+
+                for (int i = 0; i < 5; i++) {
+
+                    try {
+
+                        instance.sendRequest(uri, "{}");
+
+                        fail("Expected the request to fail.");
+
+                    } catch (BotanalyticsRequestException e) {
+
+                        // Expected, the first two reach the server and the rest are short-circuited.
+                    }
+                }
+            }
+
+            assertEquals(server.getRequestCount(), 2);
+        }
+    }
+
+    @Test
+    public void testMetricsListenerIsNotifiedPerEndpoint() throws Throwable {
+
+        final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+        final AtomicReference<ClientGauges> gauges = new AtomicReference<>();
+
+        MetricsListener listener = new MetricsListener() {
+
+            @Override
+            public void onStart(ClientGauges clientGauges) {
+
+                gauges.set(clientGauges);
+            }
+
+            @Override
+            public void onEnqueued(String endpoint) {
+
+                events.add("enqueued " + endpoint);
+            }
+
+            @Override
+            public void onSent(String endpoint, int statusCode, long requestBytes, long latencyNanos) {
+
+                events.add("sent " + endpoint + " " + statusCode + " " + requestBytes);
+            }
+        };
+
+        try (StubServer server = new StubServer()) {
+
+            server.enqueueStatusCodes(201);
+
+            BotanalyticsConfiguration configuration = BotanalyticsConfiguration.builder()
+                    .scheme("http")
+                    .metricsListener(listener)
+                    .build();
+
+            try (TestBotanalyticsClient instance = new TestBotanalyticsClient("token", server.getDomain(), 1, configuration)) {
+
+                URI uri = instance.getBaseUri().resolve("messages/test/");
+
+                instance.sendRequest(uri, "{}");
+                instance.sendRequestAsync(uri, "{\"id\":1}").get(5, TimeUnit.SECONDS);
+
+                assertEquals(gauges.get().getQueueDepth(), 0);
+                assertEquals(gauges.get().getMaxConnections(), 64);
+            }
+        }
+
+        assertEquals(events, Arrays.asList("sent messages/test/ 201 2", "enqueued messages/test/", "sent messages/test/ 200 8"));
+    }
+
+    @Test
+    public void testPayloadsAboveThresholdAreCompressed() throws Throwable {
+
+        try (StubServer server = new StubServer()) {
+
+            BotanalyticsConfiguration configuration = BotanalyticsConfiguration.builder()
+                    .scheme("http")
+                    .compression(new GzipCodec())
+                    .compressionThreshold(256)
+                    .build();
+
+            try (TestBotanalyticsClient instance = new TestBotanalyticsClient("token", server.getDomain(), 1, configuration)) {
+
+                URI uri = instance.getBaseUri().resolve("messages/test/");
+
+                instance.sendRequest(uri, "{}");
+                instance.sendRequest(uri, "{\"text\":\"" + StringUtils.repeat("suggestion ", 100) + "\"}");
+            }
+
+            assertEquals(server.getRequestCount(), 2);
+            assertEquals(server.getCompressedRequestCount(), 1);
+        }
+    }
+
+    @Test
+    public void testUnsupportedWireFormatFallsBackToJson() throws Throwable {
+
+        try (StubServer server = new StubServer()) {
+
+            BotanalyticsConfiguration configuration = BotanalyticsConfiguration.builder()
+                    .scheme("http")
+                    .wireFormat(JacksonWireFormat.cbor())
+                    .build();
+
+            try (TestBotanalyticsClient instance = new TestBotanalyticsClient("token", server.getDomain(), 1, configuration)) {
+
+                instance.sendRequest(instance.getBaseUri().resolve("messages/test/"), "{\"text\":\"hello\"}");
+            }
+
+            assertEquals(server.getRequestCount("application/cbor"), 1);
+            assertEquals(server.getEventCount(), 1);
+
+            server.rejectContentType("application/cbor");
+
+            try (TestBotanalyticsClient instance = new TestBotanalyticsClient("token", server.getDomain(), 1, configuration)) {
+
+                URI uri = instance.getBaseUri().resolve("messages/test/");
+
+                instance.sendRequest(uri, "{\"text\":\"hello\"}");
+                instance.sendRequest(uri, "{\"text\":\"hello\"}");
+            }
+
+            assertEquals(server.getRequestCount("application/cbor"), 2);
+            assertEquals(server.getRequestCount("application/json"), 2);
+            assertEquals(server.getEventCount(), 3);
+        }
+    }
+
+    @Test
+    public void testSendRequestStaysWithinAllocationBudget() throws Throwable {
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        if (!(threads instanceof com.sun.management.ThreadMXBean) || !((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported())
+            throw new SkipException("Per-thread allocation accounting is not supported by this JVM.");
+
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+
+        Transport transport = new Transport() {
+
+            @Override
+            public TransportResponse send(TransportRequest request) {
+
+                return NO_CONTENT;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        BotanalyticsConfiguration configuration = BotanalyticsConfiguration.builder()
+                .transport(transport)
+                .compression(new GzipCodec())
+                .compressionThreshold(256)
+                .build();
+
+        byte[] payload = ("{\"text\":\"" + StringUtils.repeat("suggestion ", 100) + "\"}").getBytes(StandardCharsets.UTF_8);
+        int events = 20000;
+
+        try (TestBotanalyticsClient instance = new TestBotanalyticsClient("token", configuration)) {
+
+            URI uri = instance.getBaseUri().resolve("messages/test/");
+
+            for (int i = 0; i < events; i++)
+                instance.sendRequest(uri, payload);
+
+            long threadId = Thread.currentThread().getId();
+            long before = allocations.getThreadAllocatedBytes(threadId);
+
+            for (int i = 0; i < events; i++)
+                instance.sendRequest(uri, payload);
+
+            long bytesPerEvent = (allocations.getThreadAllocatedBytes(threadId) - before) / events;
+
+            // Request, wire body and outcome objects plus the compressed copy of the payload.
+            assertTrue(bytesPerEvent <= 512, "Allocated " + bytesPerEvent + " bytes per event.");
+        }
+    }
+
+    @Test
+    public void testSubscriberDemandIsBoundedByInFlightEvents() throws Throwable {
+
+        try (StubServer server = new StubServer()) {
+
+            BotanalyticsConfiguration configuration = BotanalyticsConfiguration.builder()
+                    .scheme("http")
+                    .build();
+
+            try (TestBotanalyticsClient instance = new TestBotanalyticsClient("token", server.getDomain(), 1, configuration)) {
+
+                URI uri = instance.getBaseUri().resolve("messages/test/");
+                EventSubscriber<Integer> subscriber = instance.newSubscriber(uri, id -> ("{\"id\":" + id + "}").getBytes(StandardCharsets.UTF_8), 4);
+                CountingPublisher publisher = new CountingPublisher(50);
+
+                publisher.subscribe(subscriber);
+
+                subscriber.whenDone().get(10, TimeUnit.SECONDS);
+
+                assertTrue(publisher.maxOutstanding.get() <= 4);
+            }
+
+            assertEquals(server.getEventCount(), 50);
+        }
+    }
+
+    @Test
+    public void testSubscriberIsCancelledOnceClientIsClosed() throws Throwable {
+
+        try (StubServer server = new StubServer()) {
+
+            BotanalyticsConfiguration configuration = BotanalyticsConfiguration.builder()
+                    .scheme("http")
+                    .build();
+
+            TestBotanalyticsClient instance = new TestBotanalyticsClient("token", server.getDomain(), 1, configuration);
+
+            instance.close();
+
+            URI uri = instance.getBaseUri().resolve("messages/test/");
+            EventSubscriber<Integer> subscriber = instance.newSubscriber(uri, id -> ("{\"id\":" + id + "}").getBytes(StandardCharsets.UTF_8), 4);
+            CountingPublisher publisher = new CountingPublisher(50);
+
+            // The sends fail on the publisher's thread, inside its call to request.
+            publisher.subscribe(subscriber);
+
+            try {
+
+                subscriber.whenDone().get(10, TimeUnit.SECONDS);
+
+                fail("Expected the subscriber to fail once the client is closed.");
+
+            } catch (ExecutionException e) {
+
+                assertTrue(e.getCause() instanceof IllegalStateException, String.valueOf(e.getCause()));
+            }
+
+            assertEquals(publisher.cancels.get(), 1);
+            assertFalse(publisher.cancelledDuringRequest, "Expected cancel not to overlap a request.");
+            assertEquals(server.getEventCount(), 0);
+        }
+    }
+
+    @Test
+    public void testVirtualThreadSendsAreBoundedByConnectionsPerRoute() throws Exception {
+
+        final Method isVirtual;
+
+        try {
+
+            isVirtual = Thread.class.getMethod("isVirtual");
+
+        } catch (NoSuchMethodException e) {
+
+            throw new SkipException("Virtual threads require Java 21.");
+        }
+
+        int eventCount = 200;
+
+        BotanalyticsConfiguration configuration = BotanalyticsConfiguration.builder()
+                .virtualThreads(true)
+                .maxConnectionsPerRoute(4)
+                .asyncQueueCapacity(eventCount)
+                .build();
+
+        final AtomicInteger concurrent = new AtomicInteger();
+        final AtomicInteger maxConcurrent = new AtomicInteger();
+        final AtomicInteger platformSends = new AtomicInteger();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        try (BotanalyticsClient instance = new BotanalyticsClient("token", configuration) {
+
+            @Override
+            void sendInBackground(URI uri, byte[] payload) {
+
+                maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+
+                try {
+
+                    if (!(Boolean) isVirtual.invoke(Thread.currentThread()))
+                        platformSends.incrementAndGet();
+
+                    Thread.sleep(10);
+
+                } catch (InterruptedException e) {
+
+                    Thread.currentThread().interrupt();
+
+                } catch (ReflectiveOperationException e) {
+
+                    throw new IllegalStateException(e);
+                }
+
+                concurrent.decrementAndGet();
+            }
+        }) {
+
+            URI uri = instance.getBaseUri().resolve("messages/test/");
+
+            for (int i = 0; i < eventCount; i++)
+                futures.add(instance.sendRequestAsync(uri, "{}"));
+
+            for (CompletableFuture<Void> future : futures)
+                future.get(5, TimeUnit.SECONDS);
+        }
+
+        // One virtual thread per event contends for the 4 permits, so the limit must be reached but never exceeded.
+        assertEquals(platformSends.get(), 0);
+        assertEquals(maxConcurrent.get(), 4);
+    }
+
+    @Test
+    public void testThrottledTokenDoesNotStallOtherClientsOfGroup() throws Throwable {
+
+        try (StubServer server = new StubServer()) {
+
+            server.throttle("throttled", 60);
+
+            BotanalyticsConfiguration configuration = BotanalyticsConfiguration.builder()
+                    .scheme("http")
+                    .circuitBreakerThreshold(2)
+                    .build();
+
+            try (BotanalyticsClientGroup group = new BotanalyticsClientGroup(server.getDomain(), 1, configuration)) {
+
+                TestBotanalyticsClient throttled = new TestBotanalyticsClient("throttled", group);
+                TestBotanalyticsClient healthy = new TestBotanalyticsClient("healthy", group);
+                URI uri = group.getBaseUri().resolve("messages/test/");
+
+                for (int i = 0; i < 5; i++) {
+
+                    try {
+
+                        throttled.sendRequest(uri, "{}");
+
+                        fail("Expected the request to fail.");
+
+                    } catch (BotanalyticsRequestException e) {
+
+                        // Expected, the first one reaches the server and the rest fail fast until Retry-After.
+                    }
+                }
+
+                for (int i = 0; i < 5; i++)
+                    healthy.sendRequestAsync(uri, "{}").get(5, TimeUnit.SECONDS);
+
+                assertEquals(group.getClientCount(), 2);
+            }
+
+            assertEquals(server.getRequestCount(), 6);
+        }
+    }
+
+    @Test(expectedExceptions = BotanalyticsConfigurationException.class)
+    public void testGroupRejectsSpoolDirectory() throws Exception {
+
+        BotanalyticsConfiguration configuration = BotanalyticsConfiguration.builder()
+                .spoolDirectory(Paths.get("spool"))
+                .build();
+
+        new BotanalyticsClientGroup("example.com", 1, configuration);
+    }
+
+    @Test
+    public void testBackfillResumesFromCheckpoint() throws Throwable {
+
+        Path directory = Files.createTempDirectory("botanalytics-backfill");
+        Path export = directory.resolve("export.ndjson");
+        Path checkpoint = directory.resolve("export.checkpoint");
+
+        StringBuilder lines = new StringBuilder();
+
+        for (int i = 0; i < 40; i++)
+            lines.append("{\"conversation\":").append(i % 5).append(",\"id\":").append(i).append("}\n");
+
+        lines.append("\n");
+
+        Files.write(export, lines.toString().getBytes(StandardCharsets.UTF_8));
+
+        try (StubServer server = new StubServer()) {
+
+            server.setStatusCode(503);
+
+            BotanalyticsConfiguration configuration = BotanalyticsConfiguration.builder()
+                    .scheme("http")
+                    .retryPolicy(RetryPolicy.none())
+                    .build();
+
+            BackfillOptions options = BackfillOptions.builder()
+                    .parallelism(4)
+                    .checkpointFile(checkpoint)
+                    .build();
+
+            try (TestBotanalyticsClient instance = new TestBotanalyticsClient("token", server.getDomain(), 1, configuration)) {
+
+                URI uri = instance.getBaseUri().resolve("messages/test/");
+                Function<byte[], String> conversationOf = line -> new String(line, 0, 17, StandardCharsets.UTF_8);
+
+                try (InputStream in = Files.newInputStream(export)) {
+
+                    instance.backfill(uri, in, options, conversationOf);
+
+                    fail("Expected the failing server to abort the backfill.");
+
+                } catch (BotanalyticsRequestException e) {
+
+                    // Expected
+                }
+
+                assertTrue(Files.exists(checkpoint));
+
+                int failedRequests = server.getRequestCount();
+
+                server.setStatusCode(200);
+
+                BackfillProgress progress;
+
+                try (InputStream in = Files.newInputStream(export)) {
+
+                    progress = instance.backfill(uri, in, options, conversationOf);
+                }
+
+                assertEquals(progress.getEventsSent(), 40);
+                assertEquals(progress.getCheckpointLines(), 41);
+                assertEquals(progress.getCheckpointOffset(), Files.size(export));
+                assertEquals(server.getRequestCount(), failedRequests + 40);
+
+                try (InputStream in = Files.newInputStream(export)) {
+
+                    progress = instance.backfill(uri, in, options, conversationOf);
+                }
+
+                assertEquals(progress.getLinesRead(), 0);
+                assertEquals(server.getRequestCount(), failedRequests + 40);
+            }
+
+        } finally {
+
+            Files.deleteIfExists(checkpoint);
+            Files.deleteIfExists(export);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void testConcurrencyLimiterAdaptsToDropsAndLatency() throws Exception {
+
+        ConcurrencyLimiter aimd = new ConcurrencyLimiter(LimitAlgorithm.AIMD, 16);
+
+        assertEquals(aimd.getLimit(), 8);
+
+        for (int round = 0; round < 20; round++)
+            releaseSaturated(aimd, TimeUnit.MILLISECONDS.toNanos(10), false);
+
+        int grown = aimd.getLimit();
+
+        assertTrue(grown > 8);
+
+        aimd.release(aimd.acquire(), true);
+
+        assertTrue(aimd.getLimit() < grown);
+        assertEquals(aimd.getInFlight(), 0);
+
+        ConcurrencyLimiter gradient = new ConcurrencyLimiter(LimitAlgorithm.GRADIENT, 16);
+
+        for (int round = 0; round < 20; round++)
+            releaseSaturated(gradient, TimeUnit.MILLISECONDS.toNanos(10), false);
+
+        assertEquals(gradient.getLimit(), 16);
+
+        releaseSaturated(gradient, TimeUnit.MILLISECONDS.toNanos(100), false);
+
+        assertTrue(gradient.getLimit() < 8);
+        assertEquals(gradient.getInFlight(), 0);
+    }
+
+    /**
+     * Takes every permit of the limiter, then returns them as attempts that took the given round trip time.
+     */
+    private static void releaseSaturated(ConcurrencyLimiter limiter, long rttNanos, boolean dropped) throws InterruptedException {
+
+        int permits = limiter.getLimit();
+
+        for (int i = 0; i < permits; i++)
+            limiter.acquire();
+
+        for (int i = 0; i < permits; i++)
+            limiter.release(System.nanoTime() - rttNanos, dropped);
+    }
+
+    @Test
+    public void testRetryAfterParsing() {
+
+        assertEquals(BotanalyticsClient.parseRetryAfter("120"), 120000L);
+        assertEquals(BotanalyticsClient.parseRetryAfter("Thu, 01 Jan 1970 00:00:00 GMT"), 0L);
+        assertEquals(BotanalyticsClient.parseRetryAfter("soon"), -1L);
+        assertEquals(BotanalyticsClient.parseRetryAfter(null), -1L);
+    }
+
+    /**
+     * Emits the numbers up to a limit as demanded, recording the largest number of requested but unanswered events
+     * and the calls to cancel.
+     */
+    private static class CountingPublisher implements Publisher<Integer> {
+
+        private final int count;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicLong emitted = new AtomicLong();
+        private final AtomicLong maxOutstanding = new AtomicLong();
+        private final AtomicInteger cancels = new AtomicInteger();
+        private final AtomicInteger requesting = new AtomicInteger();
+        private volatile boolean cancelledDuringRequest;
+
+        private CountingPublisher(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public void subscribe(final Subscriber<? super Integer> subscriber) {
+
+            subscriber.onSubscribe(new Subscription() {
+
+                private final AtomicInteger wip = new AtomicInteger();
+
+                @Override
+                public void request(long n) {
+
+                    requesting.incrementAndGet();
+
+                    try {
+
+                        emit(n);
+
+                    } finally {
+
+                        requesting.decrementAndGet();
+                    }
+                }
+
+                private void emit(long n) {
+
+                    requested.addAndGet(n);
+                    maxOutstanding.accumulateAndGet(requested.get() - emitted.get(), Math::max);
+
+                    if (wip.getAndIncrement() != 0)
+                        return;
+
+                    do {
+
+                        while (cancels.get() == 0 && emitted.get() < requested.get() && emitted.get() < count)
+                            subscriber.onNext((int) emitted.incrementAndGet());
+
+                        if (emitted.get() == count) {
+
+                            subscriber.onComplete();
+
+                            return;
+                        }
+
+                    } while (wip.decrementAndGet() != 0);
+                }
+
+                @Override
+                public void cancel() {
+
+                    if (requesting.get() != 0)
+                        cancelledDuringRequest = true;
+
+                    cancels.incrementAndGet();
+                }
+            });
+        }
+    }
+
+    @Test
+    public void testWarningsAfterNestedValuesAreLogged() throws Throwable {
+
+        try (StubServer server = new StubServer()) {
+
+            server.setResponseBody("{\"meta\":{\"ids\":[1,{\"warnings\":[\"nested\"]}],\"warnings\":\"nested\"},"
+                    + "\"list\":[[\"warnings\"]],\"warnings\":[\"first\",\"second\"],\"after\":{}}");
+
+            BotanalyticsConfiguration configuration = BotanalyticsConfiguration.builder()
+                    .scheme("http")
+                    .build();
+
+            try (WarningsBotanalyticsClient instance = new WarningsBotanalyticsClient(server.getDomain(), configuration)) {
+
+                instance.sendRequest(instance.getBaseUri().resolve("messages/test/"), "{}");
+
+                assertEquals(instance.warnings, Arrays.asList("first", "second"));
+            }
+        }
+    }
+
+    @Test
+    public void testWarningsParserStopsAfterWarnings() throws Throwable {
+
+        try (StubServer server = new StubServer()) {
+
+            // Anything after the warnings is left unread, so a malformed remainder does not fail the request.
+            server.setResponseBody("{\"warnings\":[\"deprecated\"],\"rest\":[not json");
+
+            BotanalyticsConfiguration configuration = BotanalyticsConfiguration.builder()
+                    .scheme("http")
+                    .build();
+
+            try (WarningsBotanalyticsClient instance = new WarningsBotanalyticsClient(server.getDomain(), configuration)) {
+
+                instance.sendRequest(instance.getBaseUri().resolve("messages/test/"), "{}");
+
+                assertEquals(instance.warnings, Collections.singletonList("deprecated"));
+            }
+        }
+    }
+
+    @Test
+    public void testResponseBodyIsOnlyReadWhenItMayContainWarnings() throws Throwable {
+
+        final AtomicInteger bodyReads = new AtomicInteger();
+        final AtomicReference<String> contentLength = new AtomicReference<>();
+
+        Transport transport = new Transport() {
+
+            @Override
+            public TransportResponse send(TransportRequest request) {
+
+                return new TransportResponse() {
+
+                    @Override
+                    public int getStatusCode() {
+
+                        return 200;
+                    }
+
+                    @Override
+                    public String getHeader(String name) {
+
+                        return "Content-Length".equals(name) ? contentLength.get() : null;
+                    }
+
+                    @Override
+                    public InputStream getBody() {
+
+                        bodyReads.incrementAndGet();
+
+                        return new ByteArrayInputStream("{\"warnings\":[\"w\"]}".getBytes(StandardCharsets.UTF_8));
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                };
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        BotanalyticsConfiguration unchecked = BotanalyticsConfiguration.builder()
+                .transport(transport)
+                .checkWarnings(false)
+                .build();
+
+        try (WarningsBotanalyticsClient instance = new WarningsBotanalyticsClient(unchecked)) {
+
+            instance.sendRequest(instance.getBaseUri().resolve("messages/test/"), "{}");
+
+            assertEquals(bodyReads.get(), 0);
+            assertTrue(instance.warnings.isEmpty());
+        }
+
+        BotanalyticsConfiguration checked = BotanalyticsConfiguration.builder()
+                .transport(transport)
+                .build();
+
+        try (WarningsBotanalyticsClient instance = new WarningsBotanalyticsClient(checked)) {
+
+            URI uri = instance.getBaseUri().resolve("messages/test/");
+
+            // Too short for {"warnings":[""]}, e.g. the usual {}.
+            contentLength.set("2");
+            instance.sendRequest(uri, "{}");
+
+            assertEquals(bodyReads.get(), 0);
+
+            contentLength.set(null);
+            instance.sendRequest(uri, "{}");
+
+            assertEquals(bodyReads.get(), 1);
+            assertEquals(instance.warnings, Collections.singletonList("w"));
+        }
+    }
+
+    private static class BlockingBotanalyticsClient extends BotanalyticsClient {
+
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        private BlockingBotanalyticsClient(String token, BotanalyticsConfiguration configuration) throws BotanalyticsConfigurationException {
+            super(token, configuration);
+        }
+
+        @Override
+        void sendInBackground(URI uri, byte[] payload) {
+
+            started.countDown();
+
+            try {
+
+                release.await();
+
+            } catch (InterruptedException e) {
+
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Client keeping the warnings it logs.
+     */
+    private static class WarningsBotanalyticsClient extends BotanalyticsClient {
+
+        private final List<String> warnings = new CopyOnWriteArrayList<>();
+        private final Logger logger = (Logger) Proxy.newProxyInstance(Logger.class.getClassLoader(), new Class<?>[]{Logger.class}, (proxy, method, args) -> {
+
+            if (method.getName().equals("warn") && args.length == 1 && args[0] instanceof String)
+                warnings.add((String) args[0]);
+
+            return method.getReturnType() == boolean.class ? false : null;
+        });
+
+        private WarningsBotanalyticsClient(String domain, BotanalyticsConfiguration configuration) throws BotanalyticsConfigurationException {
+            super("token", domain, 1, configuration);
+        }
+
+        private WarningsBotanalyticsClient(BotanalyticsConfiguration configuration) throws BotanalyticsConfigurationException {
+            super("token", configuration);
+        }
+
+        @Override
+        protected Logger getLogger() {
+
+            return logger;
+        }
+    }
+
     private static class TestBotanalyticsClient extends BotanalyticsClient {
 
+        protected TestBotanalyticsClient(String token, String domain, int version, BotanalyticsConfiguration configuration) throws BotanalyticsConfigurationException {
+            super(token, domain, version, configuration);
+        }
+
         protected TestBotanalyticsClient(String token, String domain, int version) throws BotanalyticsConfigurationException {
             super(token, domain, version);
         }
@@ -38,5 +1135,13 @@ public class BotanalyticsClientTest {
         protected TestBotanalyticsClient(String token) throws BotanalyticsConfigurationException {
             super(token);
         }
+
+        protected TestBotanalyticsClient(String token, BotanalyticsConfiguration configuration) throws BotanalyticsConfigurationException {
+            super(token, configuration);
+        }
+
+        protected TestBotanalyticsClient(String token, BotanalyticsClientGroup group) throws BotanalyticsConfigurationException {
+            super(token, group);
+        }
     }
 }
@@ -0,0 +1,200 @@
+package co.botanalytics.sdk;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * In-process HTTP server standing in for the Botanalytics API. Counts requests and the events they carry. Bodies are
+ * decoded according to their {@code Content-Type}: JSON, CBOR and Smile are accepted unless rejected with
+ * {@link #rejectContentType(String)}, any other type is answered with {@code 415}.
+ */
+class StubServer implements AutoCloseable {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final byte[] OK_BODY = "{}".getBytes(StandardCharsets.UTF_8);
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger events = new AtomicInteger();
+    private final AtomicInteger compressedRequests = new AtomicInteger();
+    private final Map<String, JsonFactory> formats = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> requestsByContentType = new ConcurrentHashMap<>();
+    private final Queue<Integer> scriptedStatusCodes = new ConcurrentLinkedQueue<>();
+    private final Map<String, Integer> throttledTokens = new ConcurrentHashMap<>();
+    private volatile int statusCode = 200;
+    private volatile byte[] responseBody = OK_BODY;
+
+    StubServer() throws IOException {
+
+        formats.put("application/json", OBJECT_MAPPER.getFactory());
+        formats.put("application/cbor", new CBORFactory());
+        formats.put("application/x-jackson-smile", new SmileFactory());
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    String getDomain() {
+
+        return "127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    int getRequestCount() {
+
+        return requests.get();
+    }
+
+    int getEventCount() {
+
+        return events.get();
+    }
+
+    int getCompressedRequestCount() {
+
+        return compressedRequests.get();
+    }
+
+    /**
+     * @return Requests received with the content type, including those answered with {@code 415}
+     */
+    int getRequestCount(String contentType) {
+
+        AtomicInteger count = requestsByContentType.get(contentType);
+
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * Answers requests with the content type with {@code 415 Unsupported Media Type}.
+     */
+    void rejectContentType(String contentType) {
+
+        formats.remove(contentType);
+    }
+
+    void setStatusCode(int statusCode) {
+
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * Answers every request with the given body instead of {@code {}}.
+     */
+    void setResponseBody(String body) {
+
+        this.responseBody = body.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Answers every request authorized with the token with {@code 429} and the given {@code Retry-After}.
+     */
+    void throttle(String token, int retryAfterSeconds) {
+
+        throttledTokens.put("Token " + token, retryAfterSeconds);
+    }
+
+    /**
+     * Answers the next requests with the given status codes, then falls back to the configured status code.
+     */
+    void enqueueStatusCodes(int... statusCodes) {
+
+        for (int code : statusCodes)
+            scriptedStatusCodes.add(code);
+    }
+
+    @Override
+    public void close() {
+
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+
+        InputStream in = exchange.getRequestBody();
+        String contentType = String.valueOf(exchange.getRequestHeaders().getFirst("Content-Type")).split(";")[0].trim();
+        JsonFactory format = formats.get(contentType);
+
+        requestsByContentType.computeIfAbsent(contentType, key -> new AtomicInteger()).incrementAndGet();
+
+        if (format == null) {
+
+            readFully(in);
+
+            exchange.sendResponseHeaders(415, -1);
+            exchange.close();
+
+            return;
+        }
+
+        if ("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+
+            compressedRequests.incrementAndGet();
+
+            in = new GZIPInputStream(in);
+        }
+
+        JsonNode body = OBJECT_MAPPER.readTree(format.createParser(readFully(in)));
+
+        requests.incrementAndGet();
+        events.addAndGet(body.isArray() ? body.size() : 1);
+
+        Integer retryAfter = throttledTokens.get(String.valueOf(exchange.getRequestHeaders().getFirst("Authorization")));
+        Integer scripted;
+
+        if (retryAfter != null) {
+
+            exchange.getResponseHeaders().set("Retry-After", retryAfter.toString());
+
+            scripted = 429;
+
+        } else {
+
+            scripted = scriptedStatusCodes.poll();
+        }
+
+        byte[] response = responseBody;
+
+        exchange.sendResponseHeaders(scripted == null ? statusCode : scripted, response.length);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+
+            out.write(response);
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+
+        while ((read = in.read(buffer)) != -1)
+            out.write(buffer, 0, read);
+
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,206 @@
+package co.botanalytics.sdk.http2;
+
+import co.botanalytics.sdk.BotanalyticsConfiguration;
+import co.botanalytics.sdk.Transport;
+import co.botanalytics.sdk.TransportRequest;
+import co.botanalytics.sdk.TransportResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * {@link Transport} built on the JDK's {@link HttpClient}. Concurrent requests to the same host share a single HTTP/2
+ * connection as separate streams, instead of one pooled connection each. Sends block their thread like every
+ * transport, so there are only as many streams as threads sending: pair this transport with
+ * {@link BotanalyticsConfiguration.Builder#virtualThreads(boolean)} or more
+ * {@link BotanalyticsConfiguration.Builder#asyncThreads(int)} to make use of the multiplexing. Falls back to HTTP/1.1
+ * when the server does not negotiate HTTP/2. Over plain HTTP the first request upgrades its connection ({@code h2c}),
+ * so requests sent before that completes open connections of their own.
+ *
+ * <pre>
+ * BotanalyticsConfiguration configuration = BotanalyticsConfiguration.builder()
+ *         .transport(new Http2Transport(BotanalyticsConfiguration.defaults()))
+ *         .build();
+ * </pre>
+ */
+public class Http2Transport implements Transport {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Http2Transport.class);
+
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+    private final boolean ownsClient;
+    private final Set<CompletableFuture<?>> inFlight = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    /**
+     * Constructs an HTTP/2 transport using the connect and socket timeouts of the given configuration.
+     * @param configuration Configuration providing the timeouts
+     */
+    public Http2Transport(BotanalyticsConfiguration configuration) {
+
+        this(HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(configuration.getConnectTimeoutMillis()))
+                .build(), Duration.ofMillis(configuration.getSocketTimeoutMillis()), true);
+    }
+
+    /**
+     * Constructs an HTTP/2 transport on top of an existing {@link HttpClient}, which closing the transport does not shut
+     * down.
+     * @param httpClient Client used for every request
+     * @param requestTimeout Maximum time to wait for a response
+     */
+    public Http2Transport(HttpClient httpClient, Duration requestTimeout) {
+
+        this(httpClient, requestTimeout, false);
+    }
+
+    private Http2Transport(HttpClient httpClient, Duration requestTimeout, boolean ownsClient) {
+
+        this.httpClient = httpClient;
+        this.requestTimeout = requestTimeout;
+        this.ownsClient = ownsClient;
+    }
+
+    /**
+     * Sends through the client's asynchronous API and waits for the response, so {@link #close()} can abort the wait.
+     */
+    @Override
+    public TransportResponse send(TransportRequest request) throws IOException {
+
+        if (closed)
+            throw new IOException("Transport is closed.");
+
+        CompletableFuture<HttpResponse<InputStream>> future = httpClient.sendAsync(buildRequest(request), HttpResponse.BodyHandlers.ofInputStream());
+
+        inFlight.add(future);
+
+        try {
+
+            if (closed)
+                future.cancel(true);
+
+            return new Http2Response(future.get());
+
+        } catch (InterruptedException e) {
+
+            future.cancel(true);
+
+            Thread.currentThread().interrupt();
+
+            throw new InterruptedIOException("Interrupted while waiting for response.");
+
+        } catch (CancellationException e) {
+
+            throw new IOException("Transport closed while waiting for response.");
+
+        } catch (ExecutionException e) {
+
+            Throwable cause = e.getCause();
+
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+
+        } finally {
+
+            inFlight.remove(future);
+        }
+    }
+
+    /**
+     * Fails every request still waiting for its response and rejects new ones. The JDK client only cancels the
+     * underlying exchanges since Java 16. A client created by the transport is shut down on Java 21 and later; before
+     * that its connections are released once it is garbage collected.
+     */
+    @Override
+    public void close() {
+
+        closed = true;
+
+        for (CompletableFuture<?> future : inFlight)
+            future.cancel(true);
+
+        if (!ownsClient)
+            return;
+
+        try {
+
+            HttpClient.class.getMethod("shutdownNow").invoke(httpClient);
+
+        } catch (NoSuchMethodException e) {
+
+            // Before Java 21.
+
+        } catch (ReflectiveOperationException e) {
+
+            LOGGER.debug("Failed to shut down HTTP client.", e);
+        }
+    }
+
+    private HttpRequest buildRequest(TransportRequest request) {
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(request.getUri())
+                .timeout(requestTimeout)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(request.getBody()));
+
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet())
+            builder.header(header.getKey(), header.getValue());
+
+        return builder.build();
+    }
+
+    private static final class Http2Response implements TransportResponse {
+
+        private final HttpResponse<InputStream> response;
+
+        private Http2Response(HttpResponse<InputStream> response) {
+
+            this.response = response;
+        }
+
+        @Override
+        public int getStatusCode() {
+
+            return response.statusCode();
+        }
+
+        @Override
+        public String getHeader(String name) {
+
+            return response.headers().firstValue(name).orElse(null);
+        }
+
+        @Override
+        public InputStream getBody() {
+
+            return response.body();
+        }
+
+        @Override
+        public void close() {
+
+            try (InputStream body = response.body()) {
+
+                body.transferTo(OutputStream.nullOutputStream());
+
+            } catch (IOException e) {
+
+                LOGGER.debug("Failed to discard response body.", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package co.botanalytics.sdk.http2;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal cleartext HTTP/2 server, upgrading from HTTP/1.1 the way the JDK client negotiates {@code h2c}. Every request
+ * is answered with {@code 200} and an empty JSON object, but only once as many requests are open on the connection as
+ * the batch size, so a batch completes only when its requests are multiplexed onto one connection. Request headers
+ * are never decoded; responses only use the static HPACK table.
+ */
+class H2cServer implements AutoCloseable {
+
+    private static final byte[] PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] OK_BODY = "{}".getBytes(StandardCharsets.UTF_8);
+
+    private static final int DATA = 0x0;
+    private static final int HEADERS = 0x1;
+    private static final int SETTINGS = 0x4;
+    private static final int PING = 0x6;
+    private static final int GOAWAY = 0x7;
+
+    private static final int END_STREAM = 0x1;
+    private static final int ACK = 0x1;
+    private static final int END_HEADERS = 0x4;
+
+    /** Indexed header field for {@code :status 200} in the HPACK static table. */
+    private static final int STATUS_200 = 0x88;
+
+    private final ServerSocket serverSocket;
+    private final int batchSize;
+    private final Queue<Socket> sockets = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger streams = new AtomicInteger();
+
+    /**
+     * @param batchSize Number of open requests on a connection before they are answered
+     */
+    H2cServer(int batchSize) throws IOException {
+
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        this.batchSize = batchSize;
+
+        Thread acceptor = new Thread(this::accept, "h2c-server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    URI getUri() {
+
+        return URI.create("http://127.0.0.1:" + serverSocket.getLocalPort() + "/v1/messages/test/");
+    }
+
+    int getConnectionCount() {
+
+        return connections.get();
+    }
+
+    /**
+     * @return Number of requests received as HTTP/2 streams, including the one sent with the upgrade
+     */
+    int getStreamCount() {
+
+        return streams.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        serverSocket.close();
+
+        for (Socket socket : sockets)
+            socket.close();
+    }
+
+    private void accept() {
+
+        while (!serverSocket.isClosed()) {
+
+            try {
+
+                Socket socket = serverSocket.accept();
+
+                connections.incrementAndGet();
+                sockets.add(socket);
+
+                Thread handler = new Thread(() -> serve(socket), "h2c-connection");
+                handler.setDaemon(true);
+                handler.start();
+
+            } catch (IOException e) {
+
+                // Closed.
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+
+        try (Socket closing = socket) {
+
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+
+            String head = readHead(in);
+
+            in.readFully(new byte[contentLength(head)]);
+
+            if (!head.toLowerCase(Locale.ROOT).contains("upgrade: h2c"))
+                throw new IOException("Expected the client to upgrade to h2c.");
+
+            out.write("HTTP/1.1 101 Switching Protocols\r\nConnection: Upgrade\r\nUpgrade: h2c\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            writeFrame(out, SETTINGS, 0, 0, new byte[0]);
+
+            byte[] preface = new byte[PREFACE.length];
+
+            in.readFully(preface);
+
+            // The upgraded request is stream 1, already complete.
+            streams.incrementAndGet();
+            respond(out, 1);
+
+            List<Integer> open = new ArrayList<>();
+
+            while (true) {
+
+                int length = (in.readUnsignedByte() << 16) | in.readUnsignedShort();
+                int type = in.readUnsignedByte();
+                int flags = in.readUnsignedByte();
+                int stream = in.readInt() & 0x7fffffff;
+                byte[] payload = new byte[length];
+
+                in.readFully(payload);
+
+                if (type == SETTINGS && (flags & ACK) == 0) {
+
+                    writeFrame(out, SETTINGS, ACK, 0, new byte[0]);
+
+                } else if (type == PING && (flags & ACK) == 0) {
+
+                    writeFrame(out, PING, ACK, 0, payload);
+
+                } else if (type == GOAWAY) {
+
+                    return;
+
+                } else if ((type == HEADERS || type == DATA) && (flags & END_STREAM) != 0) {
+
+                    streams.incrementAndGet();
+                    open.add(stream);
+
+                    if (open.size() < batchSize)
+                        continue;
+
+                    for (int id : open)
+                        respond(out, id);
+
+                    open.clear();
+                }
+            }
+
+        } catch (IOException e) {
+
+            // Closed by either side.
+        }
+    }
+
+    private static String readHead(InputStream in) throws IOException {
+
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        int matched = 0;
+
+        while (matched < 4) {
+
+            int b = in.read();
+
+            if (b < 0)
+                throw new EOFException();
+
+            head.write(b);
+
+            matched = b == (matched % 2 == 0 ? '\r' : '\n') ? matched + 1 : (b == '\r' ? 1 : 0);
+        }
+
+        return head.toString("US-ASCII");
+    }
+
+    private static int contentLength(String head) {
+
+        for (String line : head.split("\r\n")) {
+
+            if (line.toLowerCase(Locale.ROOT).startsWith("content-length:"))
+                return Integer.parseInt(line.substring("content-length:".length()).trim());
+        }
+
+        return 0;
+    }
+
+    private static void respond(OutputStream out, int stream) throws IOException {
+
+        writeFrame(out, HEADERS, END_HEADERS, stream, new byte[]{(byte) STATUS_200});
+        writeFrame(out, DATA, END_STREAM, stream, OK_BODY);
+    }
+
+    private static void writeFrame(OutputStream out, int type, int flags, int stream, byte[] payload) throws IOException {
+
+        byte[] header = {
+                (byte) (payload.length >>> 16), (byte) (payload.length >>> 8), (byte) payload.length,
+                (byte) type, (byte) flags,
+                (byte) (stream >>> 24), (byte) (stream >>> 16), (byte) (stream >>> 8), (byte) stream
+        };
+
+        out.write(header);
+        out.write(payload);
+        out.flush();
+    }
+}
@@ -0,0 +1,208 @@
+package co.botanalytics.sdk.http2;
+
+import static org.testng.Assert.*;
+
+import co.botanalytics.sdk.BotanalyticsConfiguration;
+import co.botanalytics.sdk.TransportRequest;
+import co.botanalytics.sdk.TransportResponse;
+import com.sun.net.httpserver.HttpServer;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class Http2TransportTest {
+
+    @Test
+    public void testSendFallsBackToHttp11() throws Exception {
+
+        AtomicReference<String> authorization = new AtomicReference<>();
+        AtomicReference<String> body = new AtomicReference<>();
+
+        HttpServer server = startServer();
+
+        server.createContext("/", exchange -> {
+
+            authorization.set(exchange.getRequestHeaders().getFirst("Authorization"));
+
+            try (InputStream in = exchange.getRequestBody()) {
+
+                body.set(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+
+            byte[] response = "{\"warnings\":[]}".getBytes(StandardCharsets.UTF_8);
+
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(201, response.length);
+
+            try (OutputStream out = exchange.getResponseBody()) {
+
+                out.write(response);
+            }
+        });
+
+        try (Http2Transport transport = new Http2Transport(BotanalyticsConfiguration.defaults());
+             TransportResponse response = transport.send(request(server))) {
+
+            assertEquals(response.getStatusCode(), 201);
+            assertEquals(response.getHeader("Content-Type"), "application/json");
+            assertEquals(new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8), "{\"warnings\":[]}");
+            assertEquals(authorization.get(), "Token token");
+            assertEquals(body.get(), "{}");
+
+        } finally {
+
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testConcurrentSendsShareOneConnection() throws Exception {
+
+        int concurrency = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+
+        // Each batch is only answered once all its requests are open, which needs them to be streams of one connection.
+        try (H2cServer server = new H2cServer(concurrency);
+             Http2Transport transport = new Http2Transport(BotanalyticsConfiguration.defaults())) {
+
+            TransportRequest request = new TransportRequest(server.getUri(), Collections.singletonMap("Authorization", "Token token"), "{}".getBytes(StandardCharsets.UTF_8));
+
+            // The first request upgrades the connection, the JDK client only multiplexes once that completed.
+            try (TransportResponse response = transport.send(request)) {
+
+                assertEquals(response.getStatusCode(), 200);
+            }
+
+            for (int batch = 0; batch < 2; batch++) {
+
+                List<Future<Integer>> sends = new ArrayList<>();
+
+                for (int i = 0; i < concurrency; i++) {
+
+                    sends.add(executor.submit(() -> {
+
+                        try (TransportResponse response = transport.send(request)) {
+
+                            return response.getStatusCode();
+                        }
+                    }));
+                }
+
+                for (Future<Integer> send : sends)
+                    assertEquals((int) send.get(10, TimeUnit.SECONDS), 200);
+            }
+
+            assertEquals(server.getConnectionCount(), 1);
+            assertEquals(server.getStreamCount(), 1 + 2 * concurrency);
+
+        } finally {
+
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCloseAbortsRequestsInFlight() throws Exception {
+
+        CountDownLatch received = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        HttpServer server = startServer();
+
+        server.createContext("/", exchange -> {
+
+            received.countDown();
+
+            try {
+
+                release.await();
+
+            } catch (InterruptedException e) {
+
+                Thread.currentThread().interrupt();
+            }
+
+            exchange.close();
+        });
+
+        Http2Transport transport = new Http2Transport(BotanalyticsConfiguration.defaults());
+
+        try {
+
+            CompletableFuture<Void> send = CompletableFuture.runAsync(() -> {
+
+                try {
+
+                    transport.send(request(server)).close();
+
+                } catch (IOException e) {
+
+                    throw new RuntimeException(e);
+                }
+            });
+
+            assertTrue(received.await(5, TimeUnit.SECONDS));
+
+            transport.close();
+
+            try {
+
+                send.get(5, TimeUnit.SECONDS);
+
+                fail("Expected the request in flight to be aborted.");
+
+            } catch (ExecutionException e) {
+
+                assertTrue(e.getCause().getCause() instanceof IOException);
+            }
+
+            try {
+
+                transport.send(request(server));
+
+                fail("Expected a closed transport to reject requests.");
+
+            } catch (IOException e) {
+
+                // Expected.
+            }
+
+        } finally {
+
+            release.countDown();
+            server.stop(0);
+        }
+    }
+
+    private static HttpServer startServer() throws IOException {
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+
+        server.start();
+
+        return server;
+    }
+
+    private static TransportRequest request(HttpServer server) {
+
+        URI uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/v1/messages/test/");
+
+        return new TransportRequest(uri, Collections.singletonMap("Authorization", "Token token"), "{}".getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,225 @@
+package co.botanalytics.sdk.micrometer;
+
+import co.botanalytics.sdk.ClientGauges;
+import co.botanalytics.sdk.MetricsListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * {@link MetricsListener} recording into a Micrometer {@link MeterRegistry}. Every meter carries an {@code endpoint}
+ * tag, e.g. {@code messages/rbm/}, plus the common tags given at construction.
+ *
+ * <ul>
+ *     <li>{@code botanalytics.events.enqueued}, {@code botanalytics.events.dropped}: asynchronously logged events</li>
+ *     <li>{@code botanalytics.events.filtered}: events rejected by sampling or rate limiting before serialization</li>
+ *     <li>{@code botanalytics.requests}: timer per {@code status}, with a percentile histogram</li>
+ *     <li>{@code botanalytics.requests.errors}: requests without a response, per {@code exception}</li>
+ *     <li>{@code botanalytics.requests.size}: request body size in bytes</li>
+ *     <li>{@code botanalytics.queue.depth}, {@code botanalytics.batch.buffered}, {@code botanalytics.spool.backlog}</li>
+ *     <li>{@code botanalytics.pool.leased}, {@code .available}, {@code .pending}, {@code .max}: only for pooling transports</li>
+ *     <li>{@code botanalytics.concurrency.limit}, {@code .inflight}: only with an adaptive concurrency limit</li>
+ * </ul>
+ *
+ * <pre>
+ * BotanalyticsConfiguration configuration = BotanalyticsConfiguration.builder()
+ *         .metricsListener(new MicrometerMetricsListener(registry, Tags.of("bot", "support")))
+ *         .build();
+ * </pre>
+ *
+ * Meters are looked up once per endpoint and status code and removed from the registry when the client is closed.
+ * Use one instance per client.
+ */
+public class MicrometerMetricsListener implements MetricsListener {
+
+    private static final String PREFIX = "botanalytics.";
+
+    private final MeterRegistry registry;
+    private final Tags tags;
+    private final ConcurrentMap<String, EndpointMeters> endpoints = new ConcurrentHashMap<>();
+    private final Queue<Meter> meters = new ConcurrentLinkedQueue<>();
+
+    public MicrometerMetricsListener(MeterRegistry registry) {
+
+        this(registry, Tags.empty());
+    }
+
+    /**
+     * @param registry Registry to record into
+     * @param tags Tags added to every meter, e.g. to tell several clients apart
+     */
+    public MicrometerMetricsListener(MeterRegistry registry, Iterable<Tag> tags) {
+
+        this.registry = registry;
+        this.tags = Tags.of(tags);
+    }
+
+    @Override
+    public void onStart(ClientGauges gauges) {
+
+        gauge("queue.depth", gauges, ClientGauges::getQueueDepth);
+        gauge("batch.buffered", gauges, ClientGauges::getBufferedEvents);
+        gauge("spool.backlog", gauges, ClientGauges::getSpoolBacklog);
+
+        if (gauges.getConcurrencyLimit() >= 0) {
+
+            gauge("concurrency.limit", gauges, ClientGauges::getConcurrencyLimit);
+            gauge("concurrency.inflight", gauges, ClientGauges::getInFlightRequests);
+        }
+
+        if (gauges.getMaxConnections() < 0)
+            return;
+
+        gauge("pool.leased", gauges, ClientGauges::getLeasedConnections);
+        gauge("pool.available", gauges, ClientGauges::getAvailableConnections);
+        gauge("pool.pending", gauges, ClientGauges::getPendingConnections);
+        gauge("pool.max", gauges, ClientGauges::getMaxConnections);
+    }
+
+    @Override
+    public void onEnqueued(String endpoint) {
+
+        endpoint(endpoint).enqueued.increment();
+    }
+
+    @Override
+    public void onDropped(String endpoint) {
+
+        endpoint(endpoint).dropped.increment();
+    }
+
+    @Override
+    public void onFiltered(String endpoint) {
+
+        endpoint(endpoint).filtered.increment();
+    }
+
+    @Override
+    public void onSent(String endpoint, int statusCode, long requestBytes, long latencyNanos) {
+
+        EndpointMeters endpointMeters = endpoint(endpoint);
+
+        endpointMeters.size.record(requestBytes);
+        endpointMeters.timer(statusCode).record(latencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void onSendFailed(String endpoint, long latencyNanos, Throwable error) {
+
+        endpoint(endpoint).errors(error.getClass().getSimpleName()).increment();
+    }
+
+    @Override
+    public void onClose() {
+
+        Meter meter;
+
+        while ((meter = meters.poll()) != null)
+            registry.remove(meter);
+
+        endpoints.clear();
+    }
+
+    private EndpointMeters endpoint(String endpoint) {
+
+        EndpointMeters endpointMeters = endpoints.get(endpoint);
+
+        if (endpointMeters == null)
+            endpointMeters = endpoints.computeIfAbsent(endpoint, EndpointMeters::new);
+
+        return endpointMeters;
+    }
+
+    /**
+     * Gauges hold their object weakly by default, and nothing but the gauge references the client's
+     * {@link ClientGauges}. They are removed from the registry when the client closes.
+     */
+    private void gauge(String name, ClientGauges gauges, ToDoubleFunction<ClientGauges> value) {
+
+        meters.add(Gauge.builder(PREFIX + name, gauges, value)
+                .tags(tags)
+                .strongReference(true)
+                .register(registry));
+    }
+
+    private <T extends Meter> T track(T meter) {
+
+        meters.add(meter);
+
+        return meter;
+    }
+
+    private final class EndpointMeters {
+
+        private final Tags endpointTags;
+        private final Counter enqueued;
+        private final Counter dropped;
+        private final Counter filtered;
+        private final DistributionSummary size;
+        private final ConcurrentMap<Integer, Timer> timers = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, Counter> errors = new ConcurrentHashMap<>();
+
+        private EndpointMeters(String endpoint) {
+
+            this.endpointTags = tags.and("endpoint", endpoint);
+            this.enqueued = track(Counter.builder(PREFIX + "events.enqueued")
+                    .description("Events handed to the client for asynchronous delivery")
+                    .tags(endpointTags)
+                    .register(registry));
+            this.dropped = track(Counter.builder(PREFIX + "events.dropped")
+                    .description("Asynchronously logged events discarded because the dispatch queue was full")
+                    .tags(endpointTags)
+                    .register(registry));
+            this.filtered = track(Counter.builder(PREFIX + "events.filtered")
+                    .description("Events rejected by sampling or rate limiting before serialization")
+                    .tags(endpointTags)
+                    .register(registry));
+            this.size = track(DistributionSummary.builder(PREFIX + "requests.size")
+                    .description("Request body size")
+                    .baseUnit("bytes")
+                    .tags(endpointTags)
+                    .register(registry));
+        }
+
+        private Timer timer(int statusCode) {
+
+            Timer timer = timers.get(statusCode);
+
+            if (timer == null)
+                timer = timers.computeIfAbsent(statusCode, code -> track(Timer.builder(PREFIX + "requests")
+                        .description("Requests to the Botanalytics API that received a response")
+                        .tags(endpointTags)
+                        .tag("status", Integer.toString(code))
+                        .publishPercentileHistogram()
+                        .register(registry)));
+
+            return timer;
+        }
+
+        private Counter errors(String exception) {
+
+            Counter counter = errors.get(exception);
+
+            if (counter == null)
+                counter = errors.computeIfAbsent(exception, name -> track(Counter.builder(PREFIX + "requests.errors")
+                        .description("Requests to the Botanalytics API that failed without a response")
+                        .tags(endpointTags)
+                        .tag("exception", name)
+                        .register(registry)));
+
+            return counter;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package co.botanalytics.sdk.micrometer;
+
+import static org.testng.Assert.*;
+
+import co.botanalytics.sdk.BotanalyticsClient;
+import co.botanalytics.sdk.BotanalyticsConfiguration;
+import co.botanalytics.sdk.Transport;
+import co.botanalytics.sdk.TransportRequest;
+import co.botanalytics.sdk.TransportResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+
+public class MicrometerMetricsListenerTest {
+
+    @Test
+    public void testGaugesSurviveGarbageCollection() throws Exception {
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        BotanalyticsConfiguration configuration = BotanalyticsConfiguration.builder()
+                .transport(new Transport() {
+
+                    @Override
+                    public TransportResponse send(TransportRequest request) throws IOException {
+
+                        throw new IOException("Not expected to send.");
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                })
+                .metricsListener(new MicrometerMetricsListener(registry))
+                .build();
+
+        try (BotanalyticsClient instance = new BotanalyticsClient("token", configuration) {}) {
+
+            assertEquals(registry.get("botanalytics.queue.depth").gauge().value(), 0.0, 0.0);
+
+            forceGarbageCollection();
+
+            assertEquals(registry.get("botanalytics.queue.depth").gauge().value(), 0.0, 0.0);
+            assertEquals(registry.get("botanalytics.spool.backlog").gauge().value(), 0.0, 0.0);
+        }
+    }
+
+    /**
+     * Runs the collector until an object only reachable through a weak reference is gone.
+     */
+    private static void forceGarbageCollection() throws InterruptedException {
+
+        WeakReference<Object> sentinel = new WeakReference<>(new Object());
+
+        for (int i = 0; i < 50 && sentinel.get() != null; i++) {
+
+            System.gc();
+
+            Thread.sleep(10);
+        }
+
+        assertNull(sentinel.get(), "Expected the garbage collector to run.");
+    }
+}
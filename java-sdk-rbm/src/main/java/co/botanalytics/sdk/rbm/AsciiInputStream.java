@@ -0,0 +1,54 @@
+package co.botanalytics.sdk.rbm;
+
+import java.io.InputStream;
+
+/**
+ * Reads the characters of an ASCII string as bytes without copying it. Characters outside ASCII are replaced with
+ * {@code '?'} so that a decoder reading this stream rejects them instead of seeing a different character.
+ */
+class AsciiInputStream extends InputStream {
+
+    private final String value;
+    private int position;
+
+    AsciiInputStream(String value) {
+
+        this.value = value;
+    }
+
+    @Override
+    public int read() {
+
+        return position < value.length() ? toByte(value.charAt(position++)) : -1;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+
+        if (length == 0)
+            return 0;
+
+        int remaining = value.length() - position;
+
+        if (remaining <= 0)
+            return -1;
+
+        int count = Math.min(length, remaining);
+
+        for (int i = 0; i < count; i++)
+            buffer[offset + i] = (byte) toByte(value.charAt(position++));
+
+        return count;
+    }
+
+    @Override
+    public int available() {
+
+        return value.length() - position;
+    }
+
+    private static int toByte(char c) {
+
+        return c < 0x80 ? c : '?';
+    }
+}
@@ -1,12 +1,22 @@
 package co.botanalytics.sdk.rbm;
 
+import co.botanalytics.sdk.BackfillOptions;
+import co.botanalytics.sdk.BackfillProgress;
 import co.botanalytics.sdk.BotanalyticsClient;
+import co.botanalytics.sdk.BotanalyticsClientGroup;
+import co.botanalytics.sdk.BotanalyticsConfiguration;
+import co.botanalytics.sdk.EventSubscriber;
 import co.botanalytics.sdk.exceptions.BotanalyticsAuthorizationException;
 import co.botanalytics.sdk.exceptions.BotanalyticsConfigurationException;
 import co.botanalytics.sdk.exceptions.BotanalyticsJSONException;
 import co.botanalytics.sdk.exceptions.BotanalyticsRequestException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.jackson2.JacksonFactory;
 import com.google.api.services.rcsbusinessmessaging.v1.model.AgentEvent;
 import com.google.api.services.rcsbusinessmessaging.v1.model.AgentMessage;
 import com.google.api.services.rcsbusinessmessaging.v1.model.Capabilities;
@@ -14,11 +24,19 @@ import com.google.api.services.rcsbusinessmessaging.v1.model.Empty;
 
 import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class BotanalyticsRBMClient extends BotanalyticsClient {
 
+    private static final JsonFactory JSON_FACTORY = JacksonFactory.getDefaultInstance();
+
     private static final String TYPE_IMAGE = "image";
     private static final String TYPE_AUDIO = "auido";
     private static final String TYPE_VIDEO = "video";
@@ -26,6 +44,35 @@ public class BotanalyticsRBMClient extends BotanalyticsClient {
 
     private final URI MESSAGES_URI = getBaseUri().resolve("messages/rbm/");
 
+    private final RBMEventFilter filter;
+
+    /**
+     * Constructs a Botanalytics client for Google RBM.
+     * @param token Botanalytics token
+     * @param domain Target Botanalytics API domain
+     * @param version Target Botanalytics API version
+     * @param configuration Client tuning options, see {@link co.botanalytics.sdk.BotanalyticsConfiguration BotanalyticsConfiguration}
+     * @throws BotanalyticsConfigurationException Thrown when an invalid configuration is provided (e.g domain or version)
+     */
+    public BotanalyticsRBMClient(String token, String domain, int version, BotanalyticsConfiguration configuration) throws BotanalyticsConfigurationException {
+        super(token, domain, version, configuration);
+        this.filter = RBMEventFilter.acceptAll();
+    }
+
+    /**
+     * Constructs a Botanalytics client for Google RBM that only logs the events accepted by a filter.
+     * @param token Botanalytics token
+     * @param domain Target Botanalytics API domain
+     * @param version Target Botanalytics API version
+     * @param configuration Client tuning options, see {@link co.botanalytics.sdk.BotanalyticsConfiguration BotanalyticsConfiguration}
+     * @param filter Sampling, rate limiting and type rules, see {@link RBMEventFilter}
+     * @throws BotanalyticsConfigurationException Thrown when an invalid configuration is provided (e.g domain or version) or the filter is missing
+     */
+    public BotanalyticsRBMClient(String token, String domain, int version, BotanalyticsConfiguration configuration, RBMEventFilter filter) throws BotanalyticsConfigurationException {
+        super(token, domain, version, configuration);
+        this.filter = requireFilter(filter);
+    }
+
     /**
      * Constructs a Botanalytics client for Google RBM.
      * @param token Botanalytics token
@@ -35,6 +82,7 @@ public class BotanalyticsRBMClient extends BotanalyticsClient {
      */
     public BotanalyticsRBMClient(String token, String domain, int version) throws BotanalyticsConfigurationException {
         super(token, domain, version);
+        this.filter = RBMEventFilter.acceptAll();
     }
 
     /**
@@ -45,6 +93,7 @@ public class BotanalyticsRBMClient extends BotanalyticsClient {
      */
     public BotanalyticsRBMClient(String token, String domain) throws BotanalyticsConfigurationException {
         super(token, domain);
+        this.filter = RBMEventFilter.acceptAll();
     }
 
     /**
@@ -54,6 +103,71 @@ public class BotanalyticsRBMClient extends BotanalyticsClient {
      */
     public BotanalyticsRBMClient(String token) throws BotanalyticsConfigurationException {
         super(token);
+        this.filter = RBMEventFilter.acceptAll();
+    }
+
+    /**
+     * Constructs a Botanalytics client for Google RBM.
+     * @param token Botanalytics token
+     * @param configuration Client tuning options, see {@link co.botanalytics.sdk.BotanalyticsConfiguration BotanalyticsConfiguration}
+     * @throws BotanalyticsConfigurationException Thrown when an invalid configuration is provided (e.g domain or version)
+     */
+    public BotanalyticsRBMClient(String token, BotanalyticsConfiguration configuration) throws BotanalyticsConfigurationException {
+        super(token, configuration);
+        this.filter = RBMEventFilter.acceptAll();
+    }
+
+    /**
+     * Constructs a Botanalytics client for Google RBM that only logs the events accepted by a filter.
+     * @param token Botanalytics token
+     * @param configuration Client tuning options, see {@link co.botanalytics.sdk.BotanalyticsConfiguration BotanalyticsConfiguration}
+     * @param filter Sampling, rate limiting and type rules, see {@link RBMEventFilter}
+     * @throws BotanalyticsConfigurationException Thrown when an invalid configuration is provided (e.g domain or version) or the filter is missing
+     */
+    public BotanalyticsRBMClient(String token, BotanalyticsConfiguration configuration, RBMEventFilter filter) throws BotanalyticsConfigurationException {
+        super(token, configuration);
+        this.filter = requireFilter(filter);
+    }
+
+    /**
+     * Constructs a Botanalytics client for Google RBM sharing its connections and threads with the other clients of a
+     * group, see {@link co.botanalytics.sdk.BotanalyticsClientGroup BotanalyticsClientGroup}.
+     * @param token Botanalytics token
+     * @param group Group providing the domain, version, configuration and shared resources
+     * @throws BotanalyticsConfigurationException Thrown when the token or group is missing
+     */
+    public BotanalyticsRBMClient(String token, BotanalyticsClientGroup group) throws BotanalyticsConfigurationException {
+        super(token, group);
+        this.filter = RBMEventFilter.acceptAll();
+    }
+
+    /**
+     * Constructs a Botanalytics client for Google RBM in a group that only logs the events accepted by a filter.
+     * @param token Botanalytics token
+     * @param group Group providing the domain, version, configuration and shared resources
+     * @param filter Sampling, rate limiting and type rules, see {@link RBMEventFilter}
+     * @throws BotanalyticsConfigurationException Thrown when the token, group or filter is missing
+     */
+    public BotanalyticsRBMClient(String token, BotanalyticsClientGroup group, RBMEventFilter filter) throws BotanalyticsConfigurationException {
+        super(token, group);
+        this.filter = requireFilter(filter);
+    }
+
+    /**
+     * Releases what the superclass constructor already set up when the filter is missing.
+     */
+    private RBMEventFilter requireFilter(RBMEventFilter filter) throws BotanalyticsConfigurationException {
+
+        if (filter == null) {
+
+            getLogger().error("Failed to configure Botanalytics client due to missing 'filter' field.");
+
+            close();
+
+            throw new BotanalyticsConfigurationException("filter");
+        }
+
+        return filter;
     }
 
     /**
@@ -65,11 +179,23 @@ public class BotanalyticsRBMClient extends BotanalyticsClient {
      */
     public void logMessage(AgentEvent message) throws BotanalyticsRequestException, BotanalyticsAuthorizationException, BotanalyticsJSONException {
 
-        String payload = message.toString();
+        if (!accept(RBMEventType.AGENT_EVENT, message.getName()))
+            return;
+
+        sendRequest(MESSAGES_URI, serialize(message));
+    }
+
+    /**
+     * Logs an {@link com.google.api.services.rcsbusinessmessaging.v1.model.AgentEvent AgentEvent} object without blocking the caller.
+     * @param message {@link com.google.api.services.rcsbusinessmessaging.v1.model.AgentEvent AgentEvent} object
+     * @return Future completed when the event was delivered, or exceptionally with the exceptions of {@link #logMessage(AgentEvent)}
+     */
+    public CompletableFuture<Void> logMessageAsync(AgentEvent message) {
 
-        getLogger().debug("Logging message: {}", payload);
+        if (!accept(RBMEventType.AGENT_EVENT, message.getName()))
+            return CompletableFuture.completedFuture(null);
 
-        sendRequest(MESSAGES_URI, payload);
+        return sendModelAsync(message);
     }
 
     /**
@@ -81,11 +207,23 @@ public class BotanalyticsRBMClient extends BotanalyticsClient {
      */
     public void logMessage(AgentMessage message) throws BotanalyticsRequestException, BotanalyticsAuthorizationException, BotanalyticsJSONException {
 
-        String payload = message.toString();
+        if (!accept(RBMEventType.AGENT_MESSAGE, message.getName()))
+            return;
 
-        getLogger().debug("Logging message: {}", payload);
+        sendRequest(MESSAGES_URI, serialize(message));
+    }
+
+    /**
+     * Logs an {@link com.google.api.services.rcsbusinessmessaging.v1.model.AgentMessage AgentMessage} object without blocking the caller.
+     * @param message {@link com.google.api.services.rcsbusinessmessaging.v1.model.AgentMessage AgentMessage} object
+     * @return Future completed when the event was delivered, or exceptionally with the exceptions of {@link #logMessage(AgentMessage)}
+     */
+    public CompletableFuture<Void> logMessageAsync(AgentMessage message) {
+
+        if (!accept(RBMEventType.AGENT_MESSAGE, message.getName()))
+            return CompletableFuture.completedFuture(null);
 
-        sendRequest(MESSAGES_URI, payload);
+        return sendModelAsync(message);
     }
 
     /**
@@ -97,11 +235,23 @@ public class BotanalyticsRBMClient extends BotanalyticsClient {
      */
     public void logMessage(Empty empty) throws BotanalyticsRequestException, BotanalyticsAuthorizationException, BotanalyticsJSONException {
 
-        String payload = empty.toString();
+        if (!accept(RBMEventType.EMPTY, null))
+            return;
+
+        sendRequest(MESSAGES_URI, serialize(empty));
+    }
+
+    /**
+     * Logs an {@link com.google.api.services.rcsbusinessmessaging.v1.model.Empty Empty} object without blocking the caller.
+     * @param empty {@link com.google.api.services.rcsbusinessmessaging.v1.model.Empty Empty} object
+     * @return Future completed when the event was delivered, or exceptionally with the exceptions of {@link #logMessage(Empty)}
+     */
+    public CompletableFuture<Void> logMessageAsync(Empty empty) {
 
-        getLogger().debug("Logging message: {}", payload);
+        if (!accept(RBMEventType.EMPTY, null))
+            return CompletableFuture.completedFuture(null);
 
-        sendRequest(MESSAGES_URI, payload);
+        return sendModelAsync(empty);
     }
 
     /**
@@ -113,53 +263,151 @@ public class BotanalyticsRBMClient extends BotanalyticsClient {
      */
     public void logMessage(Capabilities capabilities) throws BotanalyticsRequestException, BotanalyticsAuthorizationException, BotanalyticsJSONException {
 
-        String payload = capabilities.toString();
+        if (!accept(RBMEventType.CAPABILITIES, null))
+            return;
+
+        sendRequest(MESSAGES_URI, serialize(capabilities));
+    }
+
+    /**
+     * Logs an {@link com.google.api.services.rcsbusinessmessaging.v1.model.Capabilities Capabilities} object without blocking the caller.
+     * @param capabilities {@link com.google.api.services.rcsbusinessmessaging.v1.model.Capabilities Capabilities} object
+     * @return Future completed when the event was delivered, or exceptionally with the exceptions of {@link #logMessage(Capabilities)}
+     */
+    public CompletableFuture<Void> logMessageAsync(Capabilities capabilities) {
 
-        getLogger().debug("Logging message: {}", payload);
+        if (!accept(RBMEventType.CAPABILITIES, null))
+            return CompletableFuture.completedFuture(null);
 
-        sendRequest(MESSAGES_URI, payload);
+        return sendModelAsync(capabilities);
     }
 
     /**
      * Logs an {@link javax.servlet.http.HttpServletRequest HttpServletRequest} object.
      * @param request {@link javax.servlet.http.HttpServletRequest HttpServletRequest} object
+     * @return Pub/Sub envelope with the decoded payload under {@code message.data_decoded}, also when sampling or rate
+     * limiting skipped it, or {@code null} when Pub/Sub events are excluded by the filter and the body was left unread,
+     * when the message is a redelivery skipped by deduplication, see {@link RBMEventFilter.Builder#deduplicate}, or
+     * when the request holds no {@code message.data}
      * @throws BotanalyticsRequestException Thrown when the underlying HTTPS request to Botanalytics API failed
      * @throws BotanalyticsAuthorizationException Thrown when the provided Botanalytics token is invalid or the bot is disabled
      * @throws BotanalyticsJSONException Thrown when the provided object's JSON structure is invalid
      */
     public String logMessage(HttpServletRequest request) throws BotanalyticsRequestException, BotanalyticsAuthorizationException, BotanalyticsJSONException {
 
+        if (!acceptPubSub())
+            return null;
+
+        PubSubPayload payload = extractPubSubPayload(request);
+
+        if (payload == null)
+            return null;
+
+        String envelope = new String(payload.bytes, StandardCharsets.UTF_8);
+
+        if (!accept(RBMEventType.PUB_SUB, payload.sender))
+            return envelope;
+
+        getLogger().debug("Logging message: {}", envelope);
+
+        try {
+
+            sendRequest(MESSAGES_URI, payload.bytes);
+
+        } catch (BotanalyticsRequestException e) {
+
+            payload.forget();
+
+            throw e;
+        }
+
+        return envelope;
+    }
+
+    /**
+     * Logs an {@link javax.servlet.http.HttpServletRequest HttpServletRequest} object without waiting for the HTTPS
+     * request to Botanalytics API. Delivery failures are reported through the client's logger only.
+     * @param request {@link javax.servlet.http.HttpServletRequest HttpServletRequest} object
+     * @return Pub/Sub envelope with the decoded payload under {@code message.data_decoded}, or {@code null} when Pub/Sub
+     * events are excluded by the filter, when the message is a redelivery skipped by deduplication or when the request
+     * holds no {@code message.data}, see {@link #logMessage(HttpServletRequest)}
+     * @throws BotanalyticsJSONException Thrown when the provided object's JSON structure is invalid
+     */
+    public String logMessageAsync(HttpServletRequest request) throws BotanalyticsJSONException {
+
+        if (!acceptPubSub())
+            return null;
+
+        PubSubPayload payload = extractPubSubPayload(request);
+
+        if (payload == null)
+            return null;
+
+        String envelope = new String(payload.bytes, StandardCharsets.UTF_8);
+
+        if (!accept(RBMEventType.PUB_SUB, payload.sender))
+            return envelope;
+
+        sendRequestAsync(MESSAGES_URI, payload.bytes).exceptionally(t -> {
+
+            if (t instanceof BotanalyticsRequestException || t.getCause() instanceof BotanalyticsRequestException)
+                payload.forget();
+
+            getLogger().warn("Failed to log Pub/Sub message asynchronously.", t);
+
+            return null;
+        });
+
+        getLogger().debug("Logging message: {}", envelope);
+
+        return envelope;
+    }
+
+    /**
+     * Parses the envelope once and adds the decoded {@code message.data} under {@code message.data_decoded}. The Base64
+     * text is decoded while Jackson parses it, so neither the decoded bytes nor a decoded String are materialized, and
+     * the result is serialized once into the bytes that are both sent and returned. Redeliveries are recognized by the
+     * Pub/Sub message id before decoding and yield {@code null}.
+     */
+    private PubSubPayload extractPubSubPayload(HttpServletRequest request) throws BotanalyticsJSONException {
+
         try {
 
             JsonNode rootNode = OBJECT_MAPPER.readTree(request.getInputStream());
 
-            if (!rootNode.has("message"))
+            JsonNode messageNode = rootNode.get("message");
+
+            if (messageNode == null)
                 return null;
 
-            JsonNode messageNode = rootNode.get("message");
+            String messageId = messageNode.path("messageId").textValue();
 
-            if (!messageNode.has("data"))
+            if (messageId != null && isRedelivery(messageId))
                 return null;
 
             JsonNode dataNode = messageNode.get("data");
 
-            String encodedResponse = dataNode.asText();
+            if (dataNode == null)
+                return null;
 
-            byte decodedResponse[] = Base64.getDecoder().decode(encodedResponse);
+            JsonNode dataDecodedNode;
 
-            String decodedDataPayload = new String(decodedResponse, "UTF-8");
+            try (InputStream decoded = Base64.getDecoder().wrap(new AsciiInputStream(dataNode.asText()))) {
 
-            JsonNode dataDecodedNode = OBJECT_MAPPER.readTree(decodedDataPayload);
+                dataDecodedNode = OBJECT_MAPPER.readTree(decoded);
+            }
 
-            ((ObjectNode) messageNode).put("data_decoded", dataDecodedNode);
+            if (messageId == null) {
 
-            String payload = OBJECT_MAPPER.writeValueAsString(rootNode);
+                messageId = dataDecodedNode.path("messageId").textValue();
 
-            getLogger().debug("Logging message: {}", payload);
+                if (messageId != null && isRedelivery(messageId))
+                    return null;
+            }
 
-            sendRequest(MESSAGES_URI, payload);
+            ((ObjectNode) messageNode).set("data_decoded", dataDecodedNode);
 
-            return OBJECT_MAPPER.writeValueAsString(rootNode);
+            return new PubSubPayload(OBJECT_MAPPER.writeValueAsBytes(rootNode), dataDecodedNode.path("senderPhoneNumber").textValue(), messageId);
 
         } catch (IOException e) {
 
@@ -169,6 +417,18 @@ public class BotanalyticsRBMClient extends BotanalyticsClient {
         }
     }
 
+    private boolean isRedelivery(String messageId) {
+
+        if (!filter.isDuplicate(messageId))
+            return false;
+
+        getLogger().debug("Skipping redelivered Pub/Sub message {}.", messageId);
+
+        recordFiltered(MESSAGES_URI);
+
+        return true;
+    }
+
     /**
      * Logs an {@link com.google.api.services.rcsbusinessmessaging.v1.model.AgentMessage AgentMessage} with image.
      * @param message {@link com.google.api.services.rcsbusinessmessaging.v1.model.AgentMessage AgentMessage} object
@@ -179,7 +439,22 @@ public class BotanalyticsRBMClient extends BotanalyticsClient {
      */
     public void logImageMessage(AgentMessage message, String fileUrl) throws BotanalyticsRequestException, BotanalyticsAuthorizationException, BotanalyticsJSONException {
 
-        sendFilePayloadRequest(message, fileUrl, TYPE_IMAGE);
+        sendFilePayloadRequest(message, fileUrl, TYPE_IMAGE, RBMEventType.IMAGE);
+    }
+
+    /**
+     * Logs an {@link com.google.api.services.rcsbusinessmessaging.v1.model.AgentMessage AgentMessage} with image without blocking the caller.
+     * @param message {@link com.google.api.services.rcsbusinessmessaging.v1.model.AgentMessage AgentMessage} object
+     * @param fileUrl URL of the image
+     * @return Future completed when the event was delivered, or exceptionally with the exceptions of {@link #logImageMessage(AgentMessage, String)}
+     * @throws BotanalyticsJSONException Thrown when the provided object's JSON structure is invalid
+     */
+    public CompletableFuture<Void> logImageMessageAsync(AgentMessage message, String fileUrl) throws BotanalyticsJSONException {
+
+        if (!accept(RBMEventType.IMAGE, message.getName()))
+            return CompletableFuture.completedFuture(null);
+
+        return sendRequestAsync(MESSAGES_URI, buildFilePayload(message, fileUrl, TYPE_IMAGE));
     }
 
     /**
@@ -192,7 +467,22 @@ public class BotanalyticsRBMClient extends BotanalyticsClient {
      */
     public void logAudioMessage(AgentMessage message, String fileUrl) throws BotanalyticsRequestException, BotanalyticsAuthorizationException, BotanalyticsJSONException {
 
-        sendFilePayloadRequest(message, fileUrl, TYPE_AUDIO);
+        sendFilePayloadRequest(message, fileUrl, TYPE_AUDIO, RBMEventType.AUDIO);
+    }
+
+    /**
+     * Logs an {@link com.google.api.services.rcsbusinessmessaging.v1.model.AgentMessage AgentMessage} with audio without blocking the caller.
+     * @param message {@link com.google.api.services.rcsbusinessmessaging.v1.model.AgentMessage AgentMessage} object
+     * @param fileUrl URL of the audio
+     * @return Future completed when the event was delivered, or exceptionally with the exceptions of {@link #logAudioMessage(AgentMessage, String)}
+     * @throws BotanalyticsJSONException Thrown when the provided object's JSON structure is invalid
+     */
+    public CompletableFuture<Void> logAudioMessageAsync(AgentMessage message, String fileUrl) throws BotanalyticsJSONException {
+
+        if (!accept(RBMEventType.AUDIO, message.getName()))
+            return CompletableFuture.completedFuture(null);
+
+        return sendRequestAsync(MESSAGES_URI, buildFilePayload(message, fileUrl, TYPE_AUDIO));
     }
 
     /**
@@ -205,7 +495,22 @@ public class BotanalyticsRBMClient extends BotanalyticsClient {
      */
     public void logVideoMessage(AgentMessage message, String fileUrl) throws BotanalyticsRequestException, BotanalyticsAuthorizationException, BotanalyticsJSONException {
 
-        sendFilePayloadRequest(message, fileUrl, TYPE_VIDEO);
+        sendFilePayloadRequest(message, fileUrl, TYPE_VIDEO, RBMEventType.VIDEO);
+    }
+
+    /**
+     * Logs an {@link com.google.api.services.rcsbusinessmessaging.v1.model.AgentMessage AgentMessage} with video without blocking the caller.
+     * @param message {@link com.google.api.services.rcsbusinessmessaging.v1.model.AgentMessage AgentMessage} object
+     * @param fileUrl URL of the video
+     * @return Future completed when the event was delivered, or exceptionally with the exceptions of {@link #logVideoMessage(AgentMessage, String)}
+     * @throws BotanalyticsJSONException Thrown when the provided object's JSON structure is invalid
+     */
+    public CompletableFuture<Void> logVideoMessageAsync(AgentMessage message, String fileUrl) throws BotanalyticsJSONException {
+
+        if (!accept(RBMEventType.VIDEO, message.getName()))
+            return CompletableFuture.completedFuture(null);
+
+        return sendRequestAsync(MESSAGES_URI, buildFilePayload(message, fileUrl, TYPE_VIDEO));
     }
 
     /**
@@ -218,34 +523,270 @@ public class BotanalyticsRBMClient extends BotanalyticsClient {
      */
     public void logFileMessage(AgentMessage message, String fileUrl) throws BotanalyticsRequestException, BotanalyticsAuthorizationException, BotanalyticsJSONException {
 
-        sendFilePayloadRequest(message, fileUrl, TYPE_FILE);
+        sendFilePayloadRequest(message, fileUrl, TYPE_FILE, RBMEventType.FILE);
+    }
+
+    /**
+     * Logs an {@link com.google.api.services.rcsbusinessmessaging.v1.model.AgentMessage AgentMessage} with file without blocking the caller.
+     * @param message {@link com.google.api.services.rcsbusinessmessaging.v1.model.AgentMessage AgentMessage} object
+     * @param fileUrl URL of the file
+     * @return Future completed when the event was delivered, or exceptionally with the exceptions of {@link #logFileMessage(AgentMessage, String)}
+     * @throws BotanalyticsJSONException Thrown when the provided object's JSON structure is invalid
+     */
+    public CompletableFuture<Void> logFileMessageAsync(AgentMessage message, String fileUrl) throws BotanalyticsJSONException {
+
+        if (!accept(RBMEventType.FILE, message.getName()))
+            return CompletableFuture.completedFuture(null);
+
+        return sendRequestAsync(MESSAGES_URI, buildFilePayload(message, fileUrl, TYPE_FILE));
+    }
+
+    private void sendFilePayloadRequest(AgentMessage message, String fileUrl, String fileType, RBMEventType eventType) throws BotanalyticsJSONException, BotanalyticsRequestException, BotanalyticsAuthorizationException {
+
+        if (!accept(eventType, message.getName()))
+            return;
+
+        sendRequest(MESSAGES_URI, buildFilePayload(message, fileUrl, fileType));
+    }
+
+    /**
+     * Creates a Reactive Streams subscriber logging every received {@link com.google.api.services.rcsbusinessmessaging.v1.model.AgentMessage AgentMessage},
+     * {@link com.google.api.services.rcsbusinessmessaging.v1.model.AgentEvent AgentEvent} or other RBM model object
+     * without blocking the publisher. Demand follows the number of events in flight, see {@link co.botanalytics.sdk.EventSubscriber EventSubscriber}.
+     * <pre>
+     * agentMessages.subscribe(client.subscriber());
+     * </pre>
+     * @return Subscriber to attach to a publisher, once
+     */
+    public EventSubscriber<GenericJson> subscriber() {
+
+        return newSubscriber(MESSAGES_URI, this::serializeAccepted);
+    }
+
+    /**
+     * Same as {@link #subscriber()} with an explicit limit of events in flight.
+     * @param maxInFlight Maximum number of events requested from the publisher and not delivered yet
+     * @return Subscriber to attach to a publisher, once
+     */
+    public EventSubscriber<GenericJson> subscriber(int maxInFlight) {
+
+        return newSubscriber(MESSAGES_URI, this::serializeAccepted, maxInFlight);
+    }
+
+    /**
+     * Replays an export of RBM events, e.g. after an outage or when onboarding an existing agent. The file holds one
+     * JSON payload per line as this client logs them: agent messages and events, or Pub/Sub envelopes with
+     * {@code message.data_decoded}. Events of a conversation are sent in file order, the event filter is not applied.
+     * <pre>
+     * client.backfill(Paths.get("rbm-export.ndjson"), BackfillOptions.builder()
+     *         .parallelism(8)
+     *         .rateLimit(200)
+     *         .checkpointFile(Paths.get("rbm-export.checkpoint"))
+     *         .build());
+     * </pre>
+     * @param file Newline-delimited JSON export
+     * @param options Parallelism, throttling and checkpointing, see {@link BackfillOptions}
+     * @return Final progress of the import
+     * @throws IOException Thrown when the file or checkpoint could not be read or written
+     * @throws InterruptedException Thrown when the calling thread was interrupted, after the checkpoint was saved
+     * @throws BotanalyticsRequestException Thrown when an event could not be delivered, after the checkpoint was saved
+     * @throws BotanalyticsAuthorizationException Thrown when the provided Botanalytics token is invalid or the bot is disabled
+     */
+    public BackfillProgress backfill(Path file, BackfillOptions options) throws IOException, InterruptedException, BotanalyticsRequestException, BotanalyticsAuthorizationException {
+
+        try (InputStream input = Files.newInputStream(file)) {
+
+            return backfill(input, options);
+        }
+    }
+
+    /**
+     * Same as {@link #backfill(Path, BackfillOptions)} for an export read from a stream, which is not closed. With a
+     * checkpoint file the stream has to start at the beginning of the export every time.
+     */
+    public BackfillProgress backfill(InputStream input, BackfillOptions options) throws IOException, InterruptedException, BotanalyticsRequestException, BotanalyticsAuthorizationException {
+
+        return backfill(MESSAGES_URI, input, options, BotanalyticsRBMClient::conversationOfLine);
+    }
+
+    /**
+     * Applies the filter to an event, reporting rejected ones to the metrics listener.
+     * @param name Resource name of the event, {@code phones/{phone}/...}, or the phone number itself
+     */
+    private boolean accept(RBMEventType type, String name) {
+
+        if (filter.isPassThrough() || filter.accept(MESSAGES_URI, type, conversationOf(name)))
+            return true;
+
+        recordFiltered(MESSAGES_URI);
+
+        return false;
     }
 
-    private void sendFilePayloadRequest(AgentMessage message, String fileUrl, String fileType) throws BotanalyticsJSONException, BotanalyticsRequestException, BotanalyticsAuthorizationException {
+    private boolean acceptPubSub() {
+
+        if (filter.accepts(RBMEventType.PUB_SUB))
+            return true;
 
-        String payload = message.toString();
+        recordFiltered(MESSAGES_URI);
+
+        return false;
+    }
 
-        getLogger().debug("Logging message: {}", payload);
+    private static String conversationOf(String name) {
+
+        if (name == null || !name.startsWith("phones/"))
+            return name;
+
+        int end = name.indexOf('/', 7);
+
+        return end < 0 ? name.substring(7) : name.substring(7, end);
+    }
+
+    /**
+     * Finds the conversation of an exported event with a streaming parser, stopping at the first {@code phones/...}
+     * resource name or Pub/Sub {@code senderPhoneNumber}.
+     * @return The phone number, or {@code null} when the line has none or is not valid JSON
+     */
+    private static String conversationOfLine(byte[] line) {
+
+        try (JsonParser parser = OBJECT_MAPPER.getFactory().createParser(line)) {
+
+            JsonToken token;
+
+            while ((token = parser.nextToken()) != null) {
+
+                if (token != JsonToken.FIELD_NAME)
+                    continue;
+
+                String field = parser.getCurrentName();
+
+                if (!"name".equals(field) && !"senderPhoneNumber".equals(field))
+                    continue;
+
+                if (parser.nextToken() != JsonToken.VALUE_STRING)
+                    continue;
+
+                String value = parser.getText();
+
+                if ("senderPhoneNumber".equals(field) || value.startsWith("phones/"))
+                    return conversationOf(value);
+            }
+
+        } catch (IOException e) {
+
+            // Rejected by the API when it is sent.
+        }
+
+        return null;
+    }
+
+    private byte[] serializeAccepted(GenericJson model) throws BotanalyticsJSONException {
+
+        boolean accepted;
+
+        if (model instanceof AgentMessage) {
+
+            accepted = accept(RBMEventType.AGENT_MESSAGE, ((AgentMessage) model).getName());
+
+        } else if (model instanceof AgentEvent) {
+
+            accepted = accept(RBMEventType.AGENT_EVENT, ((AgentEvent) model).getName());
+
+        } else if (model instanceof Capabilities) {
+
+            accepted = accept(RBMEventType.CAPABILITIES, null);
+
+        } else if (model instanceof Empty) {
+
+            accepted = accept(RBMEventType.EMPTY, null);
+
+        } else {
+
+            Object name = model.get("name");
+
+            accepted = accept(RBMEventType.AGENT_MESSAGE, name instanceof String ? (String) name : null);
+        }
+
+        return accepted ? serialize(model) : null;
+    }
+
+    private CompletableFuture<Void> sendModelAsync(GenericJson model) {
 
         try {
 
-            JsonNode rootNode = OBJECT_MAPPER.readTree(payload);
+            return sendRequestAsync(MESSAGES_URI, serialize(model));
+
+        } catch (BotanalyticsJSONException e) {
 
-            JsonNode contentMessageNode = rootNode.get("contentMessage");
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
 
-            if (contentMessageNode == null)
-                throw new BotanalyticsJSONException("Payload is missing contentMessage field.");
+            return future;
+        }
+    }
+
+    /**
+     * Adds the file type and URL to the content message without touching the caller's object. Both levels are shallow
+     * copies, so the model is written by a single generator pass instead of a toString() and readTree() round-trip.
+     */
+    @SuppressWarnings("unchecked")
+    private byte[] buildFilePayload(AgentMessage message, String fileUrl, String fileType) throws BotanalyticsJSONException {
+
+        Object contentMessage = message.get("contentMessage");
 
-            ((ObjectNode) contentMessageNode).put("type", fileType);
-            ((ObjectNode) contentMessageNode).put("fileUrl", fileUrl);
+        if (!(contentMessage instanceof Map))
+            throw new BotanalyticsJSONException("Payload is missing contentMessage field.");
 
-            payload = OBJECT_MAPPER.writeValueAsString(rootNode);
+        GenericJson contentMessageNode = new GenericJson();
+        contentMessageNode.putAll((Map<String, ?>) contentMessage);
+        contentMessageNode.set("type", fileType);
+        contentMessageNode.set("fileUrl", fileUrl);
+
+        GenericJson rootNode = new GenericJson();
+        rootNode.putAll(message);
+        rootNode.set("contentMessage", contentMessageNode);
+
+        return serialize(rootNode);
+    }
+
+    private byte[] serialize(GenericJson model) throws BotanalyticsJSONException {
+
+        try {
+
+            byte[] payload = JSON_FACTORY.toByteArray(model);
+
+            if (getLogger().isDebugEnabled())
+                getLogger().debug("Logging message: {}", new String(payload, StandardCharsets.UTF_8));
+
+            return payload;
 
         } catch (IOException e) {
 
-            throw new BotanalyticsJSONException("Failed to modify JSON payload.", e);
+            throw new BotanalyticsJSONException("Failed to serialize JSON payload.", e);
         }
+    }
 
-        sendRequest(MESSAGES_URI, payload);
+    private final class PubSubPayload {
+
+        private final byte[] bytes;
+        private final String sender;
+        private final String messageId;
+
+        private PubSubPayload(byte[] bytes, String sender, String messageId) {
+
+            this.bytes = bytes;
+            this.sender = sender;
+            this.messageId = messageId;
+        }
+
+        /**
+         * Lets a redelivery of a message that could not be logged through deduplication.
+         */
+        private void forget() {
+
+            if (messageId != null)
+                filter.forget(messageId);
+        }
     }
 }
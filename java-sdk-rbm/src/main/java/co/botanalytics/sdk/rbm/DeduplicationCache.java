@@ -0,0 +1,208 @@
+package co.botanalytics.sdk.rbm;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded set of recently seen message ids that forgets ids after a fixed time. Ids are stored as 64-bit hashes in
+ * primitive arrays, about 32 bytes per entry, and spread over independently locked stripes so concurrent webhook
+ * threads rarely contend.
+ * <p>
+ * Every stripe keeps its ids in an open-addressing hash table for lookups and in a ring in insertion order. Since all
+ * ids live equally long, the oldest id is always the next to expire, so expiry and eviction of the oldest id on
+ * overflow both happen at the head of the ring.
+ */
+class DeduplicationCache {
+
+    private static final int MAX_STRIPES = 16;
+    private static final int MIN_ENTRIES_PER_STRIPE = 64;
+
+    private final Stripe[] stripes;
+    private final long ttlNanos;
+
+    DeduplicationCache(int maxEntries, long ttlNanos) {
+
+        int stripeCount = 1;
+
+        while (stripeCount < MAX_STRIPES && maxEntries / (stripeCount * 2) >= MIN_ENTRIES_PER_STRIPE)
+            stripeCount *= 2;
+
+        this.stripes = new Stripe[stripeCount];
+        this.ttlNanos = ttlNanos;
+
+        for (int i = 0; i < stripeCount; i++)
+            stripes[i] = new Stripe((maxEntries + stripeCount - 1) / stripeCount);
+    }
+
+    /**
+     * Records the id unless it was seen within the time to live.
+     * @return {@code true} when the id was seen before
+     */
+    boolean isDuplicate(String id) {
+
+        return isDuplicate(id, System.nanoTime());
+    }
+
+    /**
+     * Same as {@link #isDuplicate(String)} at a given {@link System#nanoTime()}.
+     */
+    boolean isDuplicate(String id, long now) {
+
+        long hash = RBMEventFilter.hash(id);
+
+        return stripe(hash).isDuplicate(hash, now);
+    }
+
+    /**
+     * Removes the id, so that it is not considered a duplicate when it is seen again.
+     */
+    void forget(String id) {
+
+        long hash = RBMEventFilter.hash(id);
+
+        stripe(hash).forget(hash);
+    }
+
+    private Stripe stripe(long hash) {
+
+        return stripes[(int) (hash >>> 32) & (stripes.length - 1)];
+    }
+
+    private final class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final long[] table;
+        private final int mask;
+        private final long[] ringKeys;
+        private final long[] ringTimes;
+        private int head;
+        private int size;
+
+        private Stripe(int maxEntries) {
+
+            int tableSize = Integer.highestOneBit(Math.max(2, maxEntries) * 2 - 1) << 1;
+
+            this.table = new long[tableSize];
+            this.mask = tableSize - 1;
+            this.ringKeys = new long[maxEntries];
+            this.ringTimes = new long[maxEntries];
+        }
+
+        private boolean isDuplicate(long hash, long now) {
+
+            long key = hash == 0 ? 1 : hash;
+
+            lock.lock();
+
+            try {
+
+                while (size > 0 && now - ringTimes[head] >= ttlNanos)
+                    evictOldest();
+
+                if (indexOf(key) >= 0)
+                    return true;
+
+                if (size == ringKeys.length)
+                    evictOldest();
+
+                int tail = (head + size) % ringKeys.length;
+
+                ringKeys[tail] = key;
+                ringTimes[tail] = now;
+                size++;
+
+                int index = (int) key & mask;
+
+                while (table[index] != 0)
+                    index = (index + 1) & mask;
+
+                table[index] = key;
+
+                return false;
+
+            } finally {
+
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Only removes the id from the table. Its ring entry stays until it expires and then removes the id again, which
+         * can only let a duplicate through early, never hold an id longer than the time to live.
+         */
+        private void forget(long hash) {
+
+            long key = hash == 0 ? 1 : hash;
+
+            lock.lock();
+
+            try {
+
+                int index = indexOf(key);
+
+                if (index >= 0)
+                    removeAt(index);
+
+            } finally {
+
+                lock.unlock();
+            }
+        }
+
+        private void evictOldest() {
+
+            int index = indexOf(ringKeys[head]);
+
+            if (index >= 0)
+                removeAt(index);
+
+            head = (head + 1) % ringKeys.length;
+            size--;
+        }
+
+        private int indexOf(long key) {
+
+            int index = (int) key & mask;
+
+            while (table[index] != 0) {
+
+                if (table[index] == key)
+                    return index;
+
+                index = (index + 1) & mask;
+            }
+
+            return -1;
+        }
+
+        /**
+         * Linear probing deletion without tombstones: later entries of the same probe sequence are shifted back into
+         * the freed slot.
+         */
+        private void removeAt(int index) {
+
+            int free = index;
+            int next = index;
+
+            table[free] = 0;
+
+            while (true) {
+
+                next = (next + 1) & mask;
+
+                long key = table[next];
+
+                if (key == 0)
+                    return;
+
+                int home = (int) key & mask;
+
+                if (((next - home) & mask) >= ((next - free) & mask)) {
+
+                    table[free] = key;
+                    table[next] = 0;
+                    free = next;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package co.botanalytics.sdk.rbm;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides which events a {@link BotanalyticsRBMClient} logs, before any serialization work is done. Rejected events
+ * are not sent, their futures complete normally and they are reported to
+ * {@link co.botanalytics.sdk.MetricsListener#onFiltered(String)}.
+ * <p>
+ * Rules are applied in this order:
+ * <ol>
+ *     <li>Type rules: every {@link RBMEventType} is kept with its sample rate, {@code 0} drops the type entirely.</li>
+ *     <li>Sampling is consistent per conversation: the user's phone number is hashed, so a conversation is either
+ *     logged completely or not at all, on every instance of the bot. Conversations kept at a lower rate are also
+ *     kept at every higher rate. Events without a phone number ({@code Empty}, {@code Capabilities}) are sampled
+ *     randomly.</li>
+ *     <li>Rate limit: a token bucket per endpoint lets through the configured number of events per second, with bursts
+ *     of up to the bucket size.</li>
+ * </ol>
+ * Pub/Sub requests are checked against their type rule before the request body is read, and sampled and rate limited
+ * once {@code message.data} was decoded, since the phone number is only known then. Redelivered Pub/Sub messages can
+ * be skipped as well, see {@link Builder#deduplicate(int, long, TimeUnit)}.
+ * <p>
+ * Clients sharing an instance share its rate limit.
+ * <pre>
+ * RBMEventFilter filter = RBMEventFilter.builder()
+ *         .sampleRate(0.1)
+ *         .exclude(RBMEventType.EMPTY, RBMEventType.CAPABILITIES)
+ *         .rateLimit(500, 1000)
+ *         .build();
+ * </pre>
+ */
+public final class RBMEventFilter {
+
+    private static final RBMEventFilter ACCEPT_ALL = builder().build();
+
+    private final double[] sampleRates;
+    private final long emissionNanos;
+    private final long burstNanos;
+    private final boolean passThrough;
+    private final DeduplicationCache deduplicationCache;
+    private final ConcurrentMap<URI, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private RBMEventFilter(Builder builder) {
+
+        this.sampleRates = builder.sampleRates.clone();
+        this.emissionNanos = builder.emissionNanos;
+        this.burstNanos = builder.emissionNanos * builder.burst;
+
+        boolean sampling = false;
+
+        for (double rate : sampleRates)
+            sampling |= rate < 1;
+
+        this.passThrough = !sampling && emissionNanos == 0;
+        this.deduplicationCache = builder.deduplicationMaxEntries == 0 ? null
+                : new DeduplicationCache(builder.deduplicationMaxEntries, builder.deduplicationTtlNanos);
+    }
+
+    /**
+     * @return Filter accepting every event. This is the default.
+     */
+    public static RBMEventFilter acceptAll() {
+
+        return ACCEPT_ALL;
+    }
+
+    public static Builder builder() {
+
+        return new Builder();
+    }
+
+    public double getSampleRate(RBMEventType type) {
+        return sampleRates[type.ordinal()];
+    }
+
+    /**
+     * @return {@code true} when no rule can reject an event, so callers may skip looking up conversations
+     */
+    boolean isPassThrough() {
+
+        return passThrough;
+    }
+
+    /**
+     * @return {@code false} when every event of the type is dropped
+     */
+    boolean accepts(RBMEventType type) {
+
+        return sampleRates[type.ordinal()] > 0;
+    }
+
+    /**
+     * @param endpoint Endpoint the event would be logged to, selecting the token bucket
+     * @param type Type of the event
+     * @param conversation Phone number of the user, or {@code null} when the event has none
+     * @return {@code true} when the event should be logged
+     */
+    boolean accept(URI endpoint, RBMEventType type, String conversation) {
+
+        if (passThrough)
+            return true;
+
+        double rate = sampleRates[type.ordinal()];
+
+        if (rate <= 0)
+            return false;
+
+        if (rate < 1) {
+
+            double position = conversation == null ? ThreadLocalRandom.current().nextDouble() : position(conversation);
+
+            if (position >= rate)
+                return false;
+        }
+
+        return emissionNanos == 0 || bucket(endpoint).tryAcquire();
+    }
+
+    /**
+     * Records a Pub/Sub or RBM message id.
+     * @return {@code true} when deduplication is enabled and the id was seen within its time to live
+     */
+    boolean isDuplicate(String messageId) {
+
+        return deduplicationCache != null && deduplicationCache.isDuplicate(messageId);
+    }
+
+    /**
+     * Lets the message be logged again when it is redelivered, e.g. after sending it to Botanalytics failed.
+     */
+    void forget(String messageId) {
+
+        if (deduplicationCache != null)
+            deduplicationCache.forget(messageId);
+    }
+
+    private TokenBucket bucket(URI endpoint) {
+
+        TokenBucket bucket = buckets.get(endpoint);
+
+        if (bucket == null)
+            bucket = buckets.computeIfAbsent(endpoint, uri -> new TokenBucket());
+
+        return bucket;
+    }
+
+    /**
+     * Maps a conversation to a fixed point in {@code [0, 1)}.
+     */
+    private static double position(String conversation) {
+
+        return (hash(conversation) >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * 64-bit FNV-1a followed by the MurmurHash3 finalizer. Unlike {@link String#hashCode()}, similar phone numbers and
+     * message ids end up spread over all bits.
+     */
+    static long hash(String value) {
+
+        long hash = 0xcbf29ce484222325L;
+
+        for (int i = 0; i < value.length(); i++) {
+
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
+
+    /**
+     * Lock-free token bucket in its "virtual scheduling" form: instead of counting tokens it tracks when the bucket
+     * would be full again, and an event is let through as long as that lies no more than the burst ahead.
+     */
+    private final class TokenBucket {
+
+        private final AtomicLong fullAt = new AtomicLong(System.nanoTime());
+
+        private boolean tryAcquire() {
+
+            while (true) {
+
+                long now = System.nanoTime();
+                long current = fullAt.get();
+                long next = (current - now < 0 ? now : current) + emissionNanos;
+
+                if (next - now > burstNanos)
+                    return false;
+
+                if (fullAt.compareAndSet(current, next))
+                    return true;
+            }
+        }
+    }
+
+    public static final class Builder {
+
+        private final double[] sampleRates = new double[RBMEventType.values().length];
+        private long emissionNanos;
+        private long burst;
+        private int deduplicationMaxEntries;
+        private long deduplicationTtlNanos;
+
+        private Builder() {
+
+            Arrays.fill(sampleRates, 1);
+        }
+
+        /**
+         * @param sampleRate Fraction of conversations logged, between 0 and 1, for every type without its own rate
+         * @return This builder
+         */
+        public Builder sampleRate(double sampleRate) {
+
+            checkSampleRate(sampleRate);
+
+            Arrays.fill(sampleRates, sampleRate);
+
+            return this;
+        }
+
+        /**
+         * @param type Type the rate applies to, overriding {@link #sampleRate(double)} when called after it
+         * @param sampleRate Fraction of conversations whose events of this type are logged, between 0 and 1
+         * @return This builder
+         */
+        public Builder sampleRate(RBMEventType type, double sampleRate) {
+
+            checkSampleRate(sampleRate);
+
+            sampleRates[type.ordinal()] = sampleRate;
+
+            return this;
+        }
+
+        /**
+         * @param types Types never logged
+         * @return This builder
+         */
+        public Builder exclude(RBMEventType... types) {
+
+            for (RBMEventType type : types)
+                sampleRates[type.ordinal()] = 0;
+
+            return this;
+        }
+
+        /**
+         * @param eventsPerSecond Sustained number of events logged per second and endpoint
+         * @param burst Number of events that may be logged at once after a quiet period
+         * @return This builder
+         */
+        public Builder rateLimit(double eventsPerSecond, int burst) {
+
+            if (!(eventsPerSecond > 0))
+                throw new IllegalArgumentException("eventsPerSecond must be positive.");
+
+            if (burst < 1)
+                throw new IllegalArgumentException("burst must be positive.");
+
+            this.emissionNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / eventsPerSecond));
+            this.burst = burst;
+
+            return this;
+        }
+
+        /**
+         * Skips Pub/Sub messages that were already logged, since Pub/Sub delivers at least once. Messages are recognized
+         * by the Pub/Sub {@code messageId} before {@code message.data} is decoded, or by the RBM {@code messageId} in the
+         * decoded data when the envelope has none. A message whose delivery to Botanalytics failed is logged again
+         * when it is redelivered.
+         * @param maxEntries Maximum number of remembered messages, the oldest are forgotten first
+         * @param ttl How long a message is remembered, e.g. the subscription's acknowledgement deadline plus retries
+         * @param unit Unit of the time to live
+         * @return This builder
+         */
+        public Builder deduplicate(int maxEntries, long ttl, TimeUnit unit) {
+
+            if (maxEntries < 1)
+                throw new IllegalArgumentException("maxEntries must be positive.");
+
+            if (ttl <= 0)
+                throw new IllegalArgumentException("ttl must be positive.");
+
+            this.deduplicationMaxEntries = maxEntries;
+            this.deduplicationTtlNanos = unit.toNanos(ttl);
+
+            return this;
+        }
+
+        public RBMEventFilter build() {
+
+            return new RBMEventFilter(this);
+        }
+
+        private static void checkSampleRate(double sampleRate) {
+
+            if (!(sampleRate >= 0 && sampleRate <= 1))
+                throw new IllegalArgumentException("sampleRate must be between 0 and 1.");
+        }
+    }
+}
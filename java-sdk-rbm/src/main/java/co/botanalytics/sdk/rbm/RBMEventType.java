@@ -0,0 +1,52 @@
+package co.botanalytics.sdk.rbm;
+
+/**
+ * Kinds of events logged by {@link BotanalyticsRBMClient}, used by {@link RBMEventFilter} rules.
+ */
+public enum RBMEventType {
+
+    /**
+     * {@link com.google.api.services.rcsbusinessmessaging.v1.model.AgentMessage AgentMessage} logged without a file URL
+     */
+    AGENT_MESSAGE,
+
+    /**
+     * {@link com.google.api.services.rcsbusinessmessaging.v1.model.AgentEvent AgentEvent}, e.g. read receipts and typing indicators
+     */
+    AGENT_EVENT,
+
+    /**
+     * {@link com.google.api.services.rcsbusinessmessaging.v1.model.Empty Empty}
+     */
+    EMPTY,
+
+    /**
+     * {@link com.google.api.services.rcsbusinessmessaging.v1.model.Capabilities Capabilities}
+     */
+    CAPABILITIES,
+
+    /**
+     * {@link com.google.api.services.rcsbusinessmessaging.v1.model.AgentMessage AgentMessage} logged with the URL of an image
+     */
+    IMAGE,
+
+    /**
+     * {@link com.google.api.services.rcsbusinessmessaging.v1.model.AgentMessage AgentMessage} logged with the URL of an audio file
+     */
+    AUDIO,
+
+    /**
+     * {@link com.google.api.services.rcsbusinessmessaging.v1.model.AgentMessage AgentMessage} logged with the URL of a video
+     */
+    VIDEO,
+
+    /**
+     * {@link com.google.api.services.rcsbusinessmessaging.v1.model.AgentMessage AgentMessage} logged with the URL of any other file
+     */
+    FILE,
+
+    /**
+     * User messages and events received through a Pub/Sub push request
+     */
+    PUB_SUB
+}
@@ -0,0 +1,71 @@
+package co.botanalytics.sdk.rbm;
+
+import static org.testng.Assert.*;
+
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+public class AsciiInputStreamTest {
+
+    @Test
+    public void testReadsCharactersAsBytes() {
+
+        AsciiInputStream in = new AsciiInputStream("abcdef");
+        byte[] buffer = new byte[8];
+
+        assertEquals(in.available(), 6);
+        assertEquals(in.read(), 'a');
+        assertEquals(in.read(buffer, 0, 0), 0);
+        assertEquals(in.read(buffer, 2, 3), 3);
+        assertEquals(new String(buffer, 2, 3, StandardCharsets.US_ASCII), "bcd");
+        assertEquals(in.available(), 2);
+        assertEquals(in.read(buffer, 0, 8), 2);
+        assertEquals(new String(buffer, 0, 2, StandardCharsets.US_ASCII), "ef");
+        assertEquals(in.read(), -1);
+        assertEquals(in.read(buffer, 0, 8), -1);
+        assertEquals(in.available(), 0);
+    }
+
+    @Test
+    public void testNonAsciiCharactersAreRejectedByDecoder() throws IOException {
+
+        String data = Base64.getEncoder().encodeToString("{\"text\":\"hello\"}".getBytes(StandardCharsets.UTF_8));
+
+        try (InputStream decoded = Base64.getDecoder().wrap(new AsciiInputStream(data))) {
+
+            assertEquals(new String(readAll(decoded), StandardCharsets.UTF_8), "{\"text\":\"hello\"}");
+        }
+
+        // U+0141 truncated to a byte would be 'A', a valid Base64 character.
+        try (InputStream decoded = Base64.getDecoder().wrap(new AsciiInputStream("\u0141" + data.substring(1)))) {
+
+            readAll(decoded);
+
+            fail("Expected the decoder to reject a non-ASCII character.");
+
+        } catch (IOException e) {
+
+            // Expected.
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+
+        byte[] buffer = new byte[256];
+        int length = 0;
+        int read;
+
+        while ((read = in.read(buffer, length, buffer.length - length)) > 0)
+            length += read;
+
+        byte[] result = new byte[length];
+
+        System.arraycopy(buffer, 0, result, 0, length);
+
+        return result;
+    }
+}
@@ -0,0 +1,199 @@
+package co.botanalytics.sdk.rbm;
+
+import static org.testng.Assert.*;
+
+import co.botanalytics.sdk.BotanalyticsConfiguration;
+import co.botanalytics.sdk.exceptions.BotanalyticsRequestException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.api.services.rcsbusinessmessaging.v1.model.AgentContentMessage;
+import com.google.api.services.rcsbusinessmessaging.v1.model.AgentMessage;
+import org.testng.annotations.Test;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+public class BotanalyticsRBMClientTest {
+
+    @Test
+    public void testRedeliveriesAreSkippedByPubSubMessageId() throws Throwable {
+
+        RecordingTransport transport = new RecordingTransport();
+
+        try (BotanalyticsRBMClient instance = newClient(transport)) {
+
+            String envelope = instance.logMessage(request(pubSubEnvelope("pubsub-1", "rbm-1")));
+
+            assertNotNull(envelope);
+            assertTrue(envelope.contains("\"data_decoded\""), envelope);
+            assertTrue(envelope.contains("\"senderPhoneNumber\":\"+15550000000\""), envelope);
+
+            // Pub/Sub ids identify the delivery, so the same RBM message under another Pub/Sub id is logged again.
+            assertNull(instance.logMessage(request(pubSubEnvelope("pubsub-1", "rbm-1"))));
+            assertNull(instance.logMessageAsync(request(pubSubEnvelope("pubsub-1", "rbm-2"))));
+            assertNotNull(instance.logMessage(request(pubSubEnvelope("pubsub-2", "rbm-1"))));
+        }
+
+        assertEquals(transport.getRequestCount(), 2);
+    }
+
+    @Test
+    public void testRedeliveriesAreSkippedByRbmMessageIdWithoutPubSubId() throws Throwable {
+
+        RecordingTransport transport = new RecordingTransport();
+
+        try (BotanalyticsRBMClient instance = newClient(transport)) {
+
+            assertNotNull(instance.logMessage(request(pubSubEnvelope(null, "rbm-1"))));
+            assertNull(instance.logMessage(request(pubSubEnvelope(null, "rbm-1"))));
+            assertNotNull(instance.logMessage(request(pubSubEnvelope(null, "rbm-2"))));
+        }
+
+        assertEquals(transport.getRequestCount(), 2);
+    }
+
+    @Test
+    public void testMessageIsLoggedAgainAfterFailedDelivery() throws Throwable {
+
+        RecordingTransport transport = new RecordingTransport();
+
+        transport.enqueueStatusCodes(503);
+
+        try (BotanalyticsRBMClient instance = newClient(transport)) {
+
+            try {
+
+                instance.logMessage(request(pubSubEnvelope("pubsub-1", "rbm-1")));
+
+                fail("Expected the request to fail.");
+
+            } catch (BotanalyticsRequestException e) {
+
+                // Expected, the id is forgotten so Pub/Sub's redelivery gets through.
+            }
+
+            assertNotNull(instance.logMessage(request(pubSubEnvelope("pubsub-1", "rbm-1"))));
+            assertNull(instance.logMessage(request(pubSubEnvelope("pubsub-1", "rbm-1"))));
+        }
+
+        assertEquals(transport.getRequestCount(), 2);
+    }
+
+    @Test
+    public void testImageMessageAddsFileFieldsWithoutModifyingCaller() throws Throwable {
+
+        RecordingTransport transport = new RecordingTransport();
+        AgentMessage message = newAgentMessage();
+
+        try (BotanalyticsRBMClient instance = newClient(transport)) {
+
+            instance.logImageMessage(message, "https://example.com/image.png");
+        }
+
+        JsonNode body = new ObjectMapper().readTree(transport.getBodies().get(0));
+
+        assertEquals(body.path("name").asText(), "phones/+15550000000/agentMessages/1");
+        assertEquals(body.path("contentMessage").path("text").asText(), "hello");
+        assertEquals(body.path("contentMessage").path("type").asText(), "image");
+        assertEquals(body.path("contentMessage").path("fileUrl").asText(), "https://example.com/image.png");
+
+        assertEquals(message.getContentMessage().getText(), "hello");
+        assertFalse(message.getContentMessage().containsKey("type"));
+        assertFalse(message.getContentMessage().containsKey("fileUrl"));
+    }
+
+    @Test
+    public void testModelBuiltInCodeIsSerializedAsJson() throws Throwable {
+
+        RecordingTransport transport = new RecordingTransport();
+        AgentMessage message = newAgentMessage();
+
+        // Without a factory attached, toString() would not produce JSON.
+        assertNull(message.getFactory());
+
+        try (BotanalyticsRBMClient instance = newClient(transport)) {
+
+            instance.logMessage(message);
+        }
+
+        JsonNode body = new ObjectMapper().readTree(transport.getBodies().get(0));
+
+        assertEquals(body.path("name").asText(), "phones/+15550000000/agentMessages/1");
+        assertEquals(body.path("contentMessage").path("text").asText(), "hello");
+    }
+
+    private static AgentMessage newAgentMessage() {
+
+        return new AgentMessage()
+                .setName("phones/+15550000000/agentMessages/1")
+                .setContentMessage(new AgentContentMessage().setText("hello"));
+    }
+
+    private static BotanalyticsRBMClient newClient(RecordingTransport transport) throws Exception {
+
+        BotanalyticsConfiguration configuration = BotanalyticsConfiguration.builder()
+                .transport(transport)
+                .build();
+
+        RBMEventFilter filter = RBMEventFilter.builder()
+                .deduplicate(100, 1, TimeUnit.HOURS)
+                .build();
+
+        return new BotanalyticsRBMClient("token", configuration, filter);
+    }
+
+    private static String pubSubEnvelope(String pubSubMessageId, String rbmMessageId) {
+
+        String data = "{\"senderPhoneNumber\":\"+15550000000\",\"messageId\":\"" + rbmMessageId + "\",\"text\":\"hello\"}";
+        String encoded = Base64.getEncoder().encodeToString(data.getBytes(StandardCharsets.UTF_8));
+
+        return "{\"message\":{" + (pubSubMessageId == null ? "" : "\"messageId\":\"" + pubSubMessageId + "\",")
+                + "\"data\":\"" + encoded + "\"},\"subscription\":\"projects/test/subscriptions/rbm\"}";
+    }
+
+    private static HttpServletRequest request(String body) {
+
+        final ByteArrayInputStream in = new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+
+        final ServletInputStream stream = new ServletInputStream() {
+
+            @Override
+            public boolean isFinished() {
+
+                return in.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int read() {
+
+                return in.read();
+            }
+        };
+
+        return (HttpServletRequest) Proxy.newProxyInstance(BotanalyticsRBMClientTest.class.getClassLoader(), new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) -> {
+
+            if (method.getName().equals("getInputStream"))
+                return stream;
+
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+}
@@ -0,0 +1,112 @@
+package co.botanalytics.sdk.rbm;
+
+import static org.testng.Assert.*;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class DeduplicationCacheTest {
+
+    private static final long TTL = 1000;
+
+    @Test
+    public void testDuplicatesAreDetectedWithinTtl() {
+
+        DeduplicationCache cache = new DeduplicationCache(8, TTL);
+
+        assertFalse(cache.isDuplicate("a", 0));
+        assertFalse(cache.isDuplicate("b", 10));
+        assertTrue(cache.isDuplicate("a", 500));
+        assertTrue(cache.isDuplicate("a", TTL - 1));
+        assertTrue(cache.isDuplicate("b", TTL));
+    }
+
+    @Test
+    public void testIdsExpireAfterTtl() {
+
+        DeduplicationCache cache = new DeduplicationCache(8, TTL);
+
+        assertFalse(cache.isDuplicate("a", 0));
+        assertFalse(cache.isDuplicate("a", TTL));
+        assertTrue(cache.isDuplicate("a", TTL + 1));
+        assertFalse(cache.isDuplicate("a", 2 * TTL));
+    }
+
+    @Test
+    public void testOldestIdIsEvictedOnOverflow() {
+
+        // Fewer than 128 entries fit into a single stripe, so the capacity is exact.
+        DeduplicationCache cache = new DeduplicationCache(8, TTL);
+
+        for (int i = 0; i <= 8; i++)
+            assertFalse(cache.isDuplicate("id-" + i, i));
+
+        for (int i = 1; i <= 8; i++)
+            assertTrue(cache.isDuplicate("id-" + i, 10), "Expected id-" + i + " to be remembered.");
+
+        assertFalse(cache.isDuplicate("id-0", 10));
+    }
+
+    @Test
+    public void testForgottenIdsAreAcceptedAgain() {
+
+        DeduplicationCache cache = new DeduplicationCache(8, TTL);
+
+        assertFalse(cache.isDuplicate("a", 0));
+        assertFalse(cache.isDuplicate("b", 0));
+
+        cache.forget("a");
+        cache.forget("unknown");
+
+        assertTrue(cache.isDuplicate("b", 1));
+        assertFalse(cache.isDuplicate("a", 1));
+        assertTrue(cache.isDuplicate("a", 2));
+    }
+
+    @Test
+    public void testDeletionWrapsAroundTable() {
+
+        // 8 entries get a table of 16 slots. Three ids at home slot 15 occupy 15, 0 and 1, one at home slot 0 takes 2.
+        DeduplicationCache cache = new DeduplicationCache(8, TTL);
+
+        List<String> last = idsWithHome(15, 3);
+        String first = idsWithHome(0, 1).get(0);
+
+        for (String id : last)
+            assertFalse(cache.isDuplicate(id, 0));
+
+        assertFalse(cache.isDuplicate(first, 0));
+
+        // Deleting slot 15 has to pull the entries behind it back across the end of the table.
+        cache.forget(last.get(0));
+
+        assertTrue(cache.isDuplicate(last.get(1), 1));
+        assertTrue(cache.isDuplicate(last.get(2), 1));
+        assertTrue(cache.isDuplicate(first, 1));
+
+        cache.forget(last.get(1));
+        cache.forget(first);
+
+        assertTrue(cache.isDuplicate(last.get(2), 1));
+        assertFalse(cache.isDuplicate(first, 1));
+        assertFalse(cache.isDuplicate(last.get(0), 1));
+        assertFalse(cache.isDuplicate(last.get(1), 1));
+    }
+
+    private static List<String> idsWithHome(int slot, int count) {
+
+        List<String> ids = new ArrayList<>();
+
+        for (int i = 0; ids.size() < count; i++) {
+
+            String id = "message-" + i;
+
+            if (((int) RBMEventFilter.hash(id) & 15) == slot)
+                ids.add(id);
+        }
+
+        return ids;
+    }
+}
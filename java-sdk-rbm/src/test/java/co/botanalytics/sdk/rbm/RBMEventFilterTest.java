@@ -0,0 +1,123 @@
+package co.botanalytics.sdk.rbm;
+
+import static org.testng.Assert.*;
+
+import co.botanalytics.sdk.BotanalyticsConfiguration;
+import co.botanalytics.sdk.MetricsListener;
+import co.botanalytics.sdk.exceptions.BotanalyticsConfigurationException;
+import com.google.api.services.rcsbusinessmessaging.v1.model.AgentMessage;
+import org.testng.annotations.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RBMEventFilterTest {
+
+    private static final URI MESSAGES = URI.create("https://example.com/messages/");
+    private static final URI OTHER = URI.create("https://example.com/other/");
+
+    @Test
+    public void testSamplingIsConsistentPerConversation() {
+
+        RBMEventFilter first = RBMEventFilter.builder().sampleRate(0.3).build();
+        RBMEventFilter second = RBMEventFilter.builder().sampleRate(0.3).build();
+        RBMEventFilter higher = RBMEventFilter.builder().sampleRate(0.6).build();
+
+        for (int i = 0; i < 1000; i++) {
+
+            String phone = "+1555" + (1000000 + i);
+            boolean verdict = first.accept(MESSAGES, RBMEventType.PUB_SUB, phone);
+
+            for (int j = 0; j < 3; j++)
+                assertEquals(first.accept(MESSAGES, RBMEventType.PUB_SUB, phone), verdict);
+
+            assertEquals(second.accept(MESSAGES, RBMEventType.AGENT_MESSAGE, phone), verdict);
+
+            if (verdict)
+                assertTrue(higher.accept(MESSAGES, RBMEventType.PUB_SUB, phone));
+        }
+    }
+
+    @Test
+    public void testObservedSampleRateMatchesConfiguredRate() {
+
+        RBMEventFilter filter = RBMEventFilter.builder().sampleRate(0.25).build();
+
+        int conversations = 100000;
+        int accepted = 0;
+
+        for (int i = 0; i < conversations; i++) {
+
+            if (filter.accept(MESSAGES, RBMEventType.PUB_SUB, "+4915" + (10000000 + i)))
+                accepted++;
+        }
+
+        // Sequential phone numbers are the worst case for a weak hash; the binomial standard deviation is 0.0014.
+        assertEquals(accepted / (double) conversations, 0.25, 0.01);
+    }
+
+    @Test
+    public void testRateLimitAllowsBurstThenConfiguredRate() throws Exception {
+
+        RBMEventFilter filter = RBMEventFilter.builder().rateLimit(2, 3).build();
+
+        for (int i = 0; i < 3; i++)
+            assertTrue(filter.accept(MESSAGES, RBMEventType.PUB_SUB, "+15550000000"), "Expected event " + i + " of the burst to pass.");
+
+        assertFalse(filter.accept(MESSAGES, RBMEventType.PUB_SUB, "+15550000000"));
+        assertTrue(filter.accept(OTHER, RBMEventType.PUB_SUB, "+15550000000"), "Expected every endpoint to have its own bucket.");
+
+        // One emission interval is 500 ms, so exactly one more event fits until a second one has passed.
+        Thread.sleep(600);
+
+        assertTrue(filter.accept(MESSAGES, RBMEventType.PUB_SUB, "+15550000000"));
+        assertFalse(filter.accept(MESSAGES, RBMEventType.PUB_SUB, "+15550000000"));
+    }
+
+    @Test
+    public void testExcludedTypesAreRejectedBeforeTheBodyIsRead() throws Throwable {
+
+        RecordingTransport transport = new RecordingTransport();
+        AtomicInteger filtered = new AtomicInteger();
+
+        BotanalyticsConfiguration configuration = BotanalyticsConfiguration.builder()
+                .transport(transport)
+                .metricsListener(new MetricsListener() {
+
+                    @Override
+                    public void onFiltered(String endpoint) {
+
+                        filtered.incrementAndGet();
+                    }
+                })
+                .build();
+
+        RBMEventFilter filter = RBMEventFilter.builder()
+                .exclude(RBMEventType.PUB_SUB, RBMEventType.AGENT_MESSAGE)
+                .build();
+
+        HttpServletRequest request = (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) -> {
+
+            throw new AssertionError("Expected the request not to be touched, but " + method.getName() + " was called.");
+        });
+
+        try (BotanalyticsRBMClient instance = new BotanalyticsRBMClient("token", configuration, filter)) {
+
+            assertNull(instance.logMessage(request));
+            assertNull(instance.logMessageAsync(request));
+
+            instance.logMessage(new AgentMessage().setName("phones/+15550000000/agentMessages/1"));
+        }
+
+        assertEquals(transport.getRequestCount(), 0);
+        assertEquals(filtered.get(), 3);
+    }
+
+    @Test(expectedExceptions = BotanalyticsConfigurationException.class)
+    public void testMissingFilterIsRejected() throws Exception {
+
+        new BotanalyticsRBMClient("token", BotanalyticsConfiguration.defaults(), null);
+    }
+}
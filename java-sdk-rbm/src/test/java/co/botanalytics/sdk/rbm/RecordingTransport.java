@@ -0,0 +1,77 @@
+package co.botanalytics.sdk.rbm;
+
+import co.botanalytics.sdk.Transport;
+import co.botanalytics.sdk.TransportRequest;
+import co.botanalytics.sdk.TransportResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Keeps the bodies of the requests it receives and answers them with queued status codes, {@code 200} once the queue
+ * is empty, without touching the network.
+ */
+class RecordingTransport implements Transport {
+
+    private final Queue<String> bodies = new ConcurrentLinkedQueue<>();
+    private final Queue<Integer> statusCodes = new ConcurrentLinkedQueue<>();
+
+    void enqueueStatusCodes(Integer... codes) {
+
+        statusCodes.addAll(Arrays.asList(codes));
+    }
+
+    List<String> getBodies() {
+
+        return new ArrayList<>(bodies);
+    }
+
+    int getRequestCount() {
+
+        return bodies.size();
+    }
+
+    @Override
+    public TransportResponse send(TransportRequest request) {
+
+        bodies.add(new String(request.getBody(), StandardCharsets.UTF_8));
+
+        Integer queued = statusCodes.poll();
+        final int statusCode = queued == null ? 200 : queued;
+
+        return new TransportResponse() {
+
+            @Override
+            public int getStatusCode() {
+
+                return statusCode;
+            }
+
+            @Override
+            public String getHeader(String name) {
+
+                return null;
+            }
+
+            @Override
+            public InputStream getBody() {
+
+                return new ByteArrayInputStream("{}".getBytes(StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+    }
+}